@@ -47,7 +47,26 @@ public class Options {
     PERIODIC_EXAMPLE,
   }
 
+  /**
+   * How the telemetry thread waits when it has no events to process
+   */
+  public enum TelemetryWaitStrategy {
+    /**
+     * Park for a time that doubles, up to 50ms, while idle. Uses the least CPU
+     */
+    SLEEPING,
+    /**
+     * Yield the thread while idle. Picks up events sooner but keeps a core busy
+     */
+    YIELDING,
+    /**
+     * Spin while idle. Lowest latency, dedicates a core to telemetry
+     */
+    BUSY_SPIN,
+  }
+
   private static final String DEFAULT_ENV = "default";
+  public static final int DEFAULT_EVALUATION_CACHE_MAX_SIZE = 10_000;
 
   private String apikey;
   private String configOverrideDir;
@@ -71,6 +90,10 @@ public class Options {
 
   private int telemetryUploadIntervalSeconds = 15;
 
+  private TelemetryWaitStrategy telemetryWaitStrategy = TelemetryWaitStrategy.SLEEPING;
+
+  private int evaluationCacheMaxSize = DEFAULT_EVALUATION_CACHE_MAX_SIZE;
+
   @Nullable
   private String localDatafile;
 
@@ -337,6 +360,40 @@ public class Options {
     return this;
   }
 
+  public TelemetryWaitStrategy getTelemetryWaitStrategy() {
+    return telemetryWaitStrategy;
+  }
+
+  /**
+   * Configure how the thread aggregating telemetry waits for events when there are none.
+   * Defaults to SLEEPING
+   * @param telemetryWaitStrategy
+   * @return
+   */
+  public Options setTelemetryWaitStrategy(TelemetryWaitStrategy telemetryWaitStrategy) {
+    this.telemetryWaitStrategy = telemetryWaitStrategy;
+    return this;
+  }
+
+  public int getEvaluationCacheMaxSize() {
+    return evaluationCacheMaxSize;
+  }
+
+  /**
+   * Configure how many evaluation results are cached per config snapshot, keyed by the context
+   * properties each config reads. Configs keyed per user (rollouts, rules on a context key)
+   * are never cached. Defaults to 10,000; 0 disables the cache
+   * @param evaluationCacheMaxSize
+   * @return
+   */
+  public Options setEvaluationCacheMaxSize(int evaluationCacheMaxSize) {
+    if (evaluationCacheMaxSize < 0) {
+      throw new IllegalArgumentException("evaluationCacheMaxSize must not be negative");
+    }
+    this.evaluationCacheMaxSize = evaluationCacheMaxSize;
+    return this;
+  }
+
   @Nullable
   public String getLocalDatafile() {
     return localDatafile;
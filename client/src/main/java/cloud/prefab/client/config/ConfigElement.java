@@ -1,9 +1,8 @@
 package cloud.prefab.client.config;
 
+import cloud.prefab.client.internal.CompiledConfig;
+import cloud.prefab.client.internal.PrefabInternal;
 import cloud.prefab.domain.Prefab;
-import java.util.List;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 public class ConfigElement {
@@ -11,7 +10,7 @@ public class ConfigElement {
   private Prefab.Config config;
   private Provenance provenance;
 
-  private ConcurrentHashMap<Long, List<Prefab.ConfigRow>> preProcessedRows = new ConcurrentHashMap<>();
+  private volatile CompiledConfig compiledConfig;
 
   public ConfigElement(Prefab.Config config, Provenance provenance) {
     this.config = config;
@@ -26,22 +25,28 @@ public class ConfigElement {
     return provenance;
   }
 
-  public Stream<Prefab.ConfigRow> getRowsProjEnvFirst(long projectEnvId) {
-    List<Prefab.ConfigRow> configRows = preProcessedRows.get(projectEnvId);
-    if (configRows != null) {
-      return configRows.stream();
+  /**
+   * Returns the evaluation plan for this config in the given project environment.
+   * Each MergedConfigData compiles its elements for the active environment when it is built;
+   * this compiles lazily for elements that did not come through a snapshot.
+   * Internal API, used by the evaluator; unsupported
+   */
+  @PrefabInternal
+  public CompiledConfig getCompiledConfig(long projectEnvId) {
+    CompiledConfig current = compiledConfig;
+    if (current == null || current.getProjectEnvId() != projectEnvId) {
+      current = CompiledConfig.compile(this, projectEnvId);
+      compiledConfig = current;
     }
-    return preProcessedRows
-      .computeIfAbsent(
-        projectEnvId,
-        key ->
-          config
-            .getRowsList()
-            .stream()
-            .filter(cr -> !cr.hasProjectEnvId() || cr.getProjectEnvId() == projectEnvId)
-            .sorted((o1, o2) -> o1.hasProjectEnvId() ? -1 : 1)
-            .collect(Collectors.toList())
-      )
-      .stream();
+    return current;
+  }
+
+  /**
+   * @deprecated the rows are ordered once when the config is compiled, use
+   * {@link #getCompiledConfig(long)} instead
+   */
+  @Deprecated
+  public Stream<Prefab.ConfigRow> getRowsProjEnvFirst(long projectEnvId) {
+    return getCompiledConfig(projectEnvId).getConfigRows().stream();
   }
 }
@@ -0,0 +1,14 @@
+package cloud.prefab.client.exceptions;
+
+public class SegmentCycleException extends ConfigValueException {
+
+  public SegmentCycleException(String segmentKey) {
+    super(
+      String.format(
+        "Segment `%s` was reached again while it was being evaluated",
+        segmentKey
+      ),
+      null
+    );
+  }
+}
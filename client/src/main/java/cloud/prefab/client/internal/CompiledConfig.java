@@ -0,0 +1,237 @@
+package cloud.prefab.client.internal;
+
+import cloud.prefab.client.config.ConfigElement;
+import cloud.prefab.client.config.Match;
+import cloud.prefab.domain.Prefab;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import javax.annotation.Nullable;
+
+/**
+ * The evaluation plan for a single config in one project environment.
+ * Rows, conditional values and criteria are flattened into arrays, and each criterion
+ * is turned into a {@link CriterionMatcher} up front, so evaluation is plain array iteration.
+ * Internal API: it is public only so ConfigElement can hold it, and is unsupported.
+ */
+@PrefabInternal
+public final class CompiledConfig {
+
+  private final long projectEnvId;
+  private final CompiledRow[] rows;
+  private final boolean readsCurrentTime;
+
+  private CompiledConfig(long projectEnvId, CompiledRow[] rows) {
+    this.projectEnvId = projectEnvId;
+    this.rows = rows;
+    this.readsCurrentTime = anyCriterionReadsCurrentTime(rows);
+  }
+
+  private static boolean anyCriterionReadsCurrentTime(CompiledRow[] rows) {
+    for (CompiledRow row : rows) {
+      for (CompiledConditionalValue value : row.getValues()) {
+        for (CriterionMatcher matcher : value.getMatchers()) {
+          String propertyName = matcher.getCriterion().getPropertyName();
+          if (
+            ConfigRuleEvaluator.CURRENT_TIME_KEY.equals(propertyName) ||
+            ConfigRuleEvaluator.REFORGE_CURRENT_TIME_KEY.equals(propertyName)
+          ) {
+            return true;
+          }
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Keeps the rows for the given project environment followed by the rows without one,
+   * each group in its original order
+   */
+  @PrefabInternal
+  public static CompiledConfig compile(ConfigElement configElement, long projectEnvId) {
+    List<Prefab.ConfigRow> configRows = configElement.getConfig().getRowsList();
+    List<CompiledRow> rows = new ArrayList<>(configRows.size());
+    for (Prefab.ConfigRow configRow : configRows) {
+      if (configRow.hasProjectEnvId() && configRow.getProjectEnvId() == projectEnvId) {
+        rows.add(new CompiledRow(configRow));
+      }
+    }
+    for (Prefab.ConfigRow configRow : configRows) {
+      if (!configRow.hasProjectEnvId()) {
+        rows.add(new CompiledRow(configRow));
+      }
+    }
+    return new CompiledConfig(projectEnvId, rows.toArray(new CompiledRow[0]));
+  }
+
+  public long getProjectEnvId() {
+    return projectEnvId;
+  }
+
+  CompiledRow[] getRows() {
+    return rows;
+  }
+
+  /**
+   * @return the source rows, in the order they were compiled
+   */
+  public List<Prefab.ConfigRow> getConfigRows() {
+    List<Prefab.ConfigRow> configRows = new ArrayList<>(rows.length);
+    for (CompiledRow row : rows) {
+      configRows.add(row.configRow);
+    }
+    return configRows;
+  }
+
+  /**
+   * True if a criterion reads the current time, which makes the outcome change from one
+   * evaluation to the next whatever the context
+   */
+  boolean readsCurrentTime() {
+    return readsCurrentTime;
+  }
+
+  /**
+   * The match every lookup of this config produces, if that can be known without a context:
+   * the first conditional value whose criteria can all be decided at compile time and are all true,
+   * provided no earlier criteria depend on the context. Values that still need resolving per lookup
+   * (weighted, provided, decrypted) are never folded.
+   *
+   * @return the match, or null if evaluation depends on the lookup
+   */
+  @Nullable
+  Match constantMatch(ConfigElement configElement) {
+    for (int rowIndex = 0; rowIndex < rows.length; rowIndex++) {
+      CompiledConditionalValue[] values = rows[rowIndex].getValues();
+      for (int valueIndex = 0; valueIndex < values.length; valueIndex++) {
+        CompiledConditionalValue conditionalValue = values[valueIndex];
+        if (!conditionalValue.isConstant()) {
+          return null;
+        }
+        if (!conditionalValue.alwaysMatches()) {
+          continue;
+        }
+        Prefab.ConfigValue value = conditionalValue.getValue();
+        if (value.hasWeightedValues() || value.hasProvided() || value.hasDecryptWith()) {
+          return null;
+        }
+        return new Match(
+          value,
+          configElement,
+          Collections.emptyList(),
+          rowIndex,
+          valueIndex,
+          Optional.empty(),
+          rows[rowIndex].getEnvId()
+        );
+      }
+    }
+    return null;
+  }
+
+  static final class CompiledRow {
+
+    private final Prefab.ConfigRow configRow;
+    private final Map<String, Prefab.ConfigValue> properties;
+    private final Optional<Long> envId;
+    private final CompiledConditionalValue[] values;
+
+    CompiledRow(Prefab.ConfigRow configRow) {
+      this.configRow = configRow;
+      this.properties = configRow.getPropertiesMap();
+      this.envId =
+        configRow.hasProjectEnvId()
+          ? Optional.of(configRow.getProjectEnvId())
+          : Optional.empty();
+      this.values =
+        configRow
+          .getValuesList()
+          .stream()
+          .map(CompiledConditionalValue::new)
+          .toArray(CompiledConditionalValue[]::new);
+    }
+
+    boolean hasProperties() {
+      return !properties.isEmpty();
+    }
+
+    Map<String, Prefab.ConfigValue> getProperties() {
+      return properties;
+    }
+
+    Optional<Long> getEnvId() {
+      return envId;
+    }
+
+    CompiledConditionalValue[] getValues() {
+      return values;
+    }
+  }
+
+  static final class CompiledConditionalValue {
+
+    private final Prefab.ConfigValue value;
+
+    @Nullable
+    private final WeightedValueEvaluator.Distribution distribution;
+
+    private final CriterionMatcher[] matchers;
+    private final boolean constant;
+    private final boolean alwaysMatches;
+
+    CompiledConditionalValue(Prefab.ConditionalValue conditionalValue) {
+      this.value = conditionalValue.getValue();
+      this.distribution =
+        value.hasWeightedValues()
+          ? WeightedValueEvaluator.Distribution.of(value.getWeightedValues())
+          : null;
+      this.matchers =
+        conditionalValue
+          .getCriteriaList()
+          .stream()
+          .map(CriterionMatcher::of)
+          .toArray(CriterionMatcher[]::new);
+      boolean allConstant = true;
+      boolean allTrue = true;
+      for (CriterionMatcher matcher : matchers) {
+        if (matcher instanceof CriterionMatcher.ConstantMatcher) {
+          allTrue &= ((CriterionMatcher.ConstantMatcher) matcher).getMatch();
+        } else {
+          allConstant = false;
+        }
+      }
+      this.constant = allConstant;
+      this.alwaysMatches = allConstant && allTrue;
+    }
+
+    /**
+     * True if no criterion depends on the context or row properties
+     */
+    boolean isConstant() {
+      return constant;
+    }
+
+    boolean alwaysMatches() {
+      return alwaysMatches;
+    }
+
+    Prefab.ConfigValue getValue() {
+      return value;
+    }
+
+    /**
+     * @return the precomputed buckets if the value is weighted, otherwise null
+     */
+    @Nullable
+    WeightedValueEvaluator.Distribution getDistribution() {
+      return distribution;
+    }
+
+    CriterionMatcher[] getMatchers() {
+      return matchers;
+    }
+  }
+}
@@ -47,7 +47,6 @@ import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
-import java.util.function.Predicate;
 import java.util.function.Supplier;
 import javax.annotation.Nullable;
 import org.slf4j.Logger;
@@ -77,6 +76,7 @@ public class ConfigClientImpl implements ConfigClient {
   private final PrefabHttpClient prefabHttpClient;
 
   private final ContextStore contextStore;
+
   private final TelemetryManager telemetryManager;
   private final TypedConfigClientImpl typedConfigImpl;
 
@@ -274,7 +274,7 @@ public class ConfigClientImpl implements ConfigClient {
     @Nullable PrefabContextSetReadable prefabContext
   ) {
     waitForInitialization();
-    LookupContext lookupContext = new LookupContext(resolveContext(prefabContext));
+    LookupContext lookupContext = lookupContext(prefabContext);
     ImmutableMap.Builder<String, Prefab.ConfigValue> bldr = ImmutableMap.builder();
     for (String key : getAllKeys()) {
       updatingConfigResolver
@@ -295,8 +295,7 @@ public class ConfigClientImpl implements ConfigClient {
     PrefabContextSetReadable passedContext
   ) {
     waitForInitialization();
-    PrefabContextSetReadable resolvedContext = resolveContext(passedContext);
-    LookupContext lookupContext = new LookupContext(resolvedContext);
+    LookupContext lookupContext = lookupContext(passedContext);
     Optional<Match> matchMaybe = getMatchInternal(configKey, lookupContext);
     reportMatchResult(configKey, matchMaybe.orElse(null), lookupContext);
     return matchMaybe.map(Match::getConfigValue);
@@ -327,7 +326,7 @@ public class ConfigClientImpl implements ConfigClient {
     LookupContext lookupContext
   ) {
     waitForInitialization();
-    return updatingConfigResolver.getMatch(configKey, lookupContext);
+    return updatingConfigResolver.getValueMatch(configKey, lookupContext);
   }
 
   @Override
@@ -361,7 +360,7 @@ public class ConfigClientImpl implements ConfigClient {
     // special case getLogLevel - want to reuse the same lookup context for all key name variants
     // wait for initialization must happen before resolving the context so that any api-sent context
     // will be included
-    LookupContext lookupContext = new LookupContext(resolveContext(prefabContext));
+    LookupContext lookupContext = lookupContext(prefabContext);
     for (Iterator<String> it = loggerNameLookupIterator(loggerName); it.hasNext();) {
       String configKey = it.next();
       Optional<Prefab.LogLevel> logLevelMaybe = getInternal(configKey, lookupContext)
@@ -374,20 +373,54 @@ public class ConfigClientImpl implements ConfigClient {
     return Optional.empty();
   }
 
+  /**
+   * Without a passed context the lookup context only depends on the stored context and the config
+   * snapshot, so when the store keeps a StoredContext the one resolved from it is kept there and
+   * reused until either changes. That saves repeated calls within a request re-merging and
+   * re-expanding the same contexts, and lets them share segment results (see SegmentResults).
+   * The base context is read from the same snapshot. A scope with no stored context uses the
+   * snapshot's base lookup context, as StoredContext.EMPTY is shared by every client.
+   */
+  private LookupContext lookupContext(
+    @Nullable PrefabContextSetReadable prefabContextSetReadable
+  ) {
+    // pick the store once, the stored context and the context then come from the same one
+    ContextStore scopedContextStore = getContextStore().forCurrentScope().orElse(null);
+    MergedConfigData data = updatingConfigResolver.getData();
+    if (
+      !(scopedContextStore instanceof StoredContextSource) ||
+      (prefabContextSetReadable != null && !prefabContextSetReadable.isEmpty())
+    ) {
+      return new LookupContext(
+        resolveContext(data, scopedContextStore, prefabContextSetReadable)
+      );
+    }
+    StoredContext storedContext =
+      ((StoredContextSource) scopedContextStore).getStoredContext();
+    if (storedContext == StoredContext.EMPTY) {
+      return data.getBaseLookupContext().forNewLookup();
+    }
+    LookupContext lookupContext = storedContext.getLookupContext(data);
+    if (lookupContext == null) {
+      lookupContext =
+        new LookupContext(
+          ContextMerger.merge(data.getBaseContextSet(), storedContext.getContextSet())
+        )
+          .prepareForSharing();
+      storedContext.setLookupContext(data, lookupContext);
+    }
+    return lookupContext.forNewLookup();
+  }
+
   private PrefabContextSetReadable resolveContext(
+    MergedConfigData data,
+    @Nullable ContextStore scopedContextStore,
     @Nullable PrefabContextSetReadable prefabContextSetReadable
   ) {
     return ContextMerger.merge(
-      updatingConfigResolver.getGlobalContext(),
-      updatingConfigResolver.getApiDefaultContext(),
-      getContextStore()
-        .getContext()
-        .filter(Predicate.not(PrefabContextSetReadable::isEmpty))
-        .orElse(PrefabContextSetReadable.EMPTY),
-      Optional
-        .ofNullable(prefabContextSetReadable)
-        .filter(Predicate.not(PrefabContextSetReadable::isEmpty))
-        .orElse(PrefabContextSetReadable.EMPTY)
+      data.getBaseContextSet(),
+      scopedContextStore == null ? null : scopedContextStore.getContext().orElse(null),
+      prefabContextSetReadable
     );
   }
 
@@ -82,11 +82,14 @@ public class ConfigLoader {
     builder.putAll(classPathConfig);
     builder.putAll(apiConfig);
     builder.putAll(overrideConfig);
+    ImmutableMap<String, ConfigElement> configs = builder.buildKeepingLast();
+    // MergedConfigData compiles the evaluation plans so lookups never pay for it
     return new MergedConfigData(
-      builder.buildKeepingLast(),
+      configs,
       projectEnvId.get(),
       globalContext,
-      configIncludedContext.get()
+      configIncludedContext.get(),
+      options.getEvaluationCacheMaxSize()
     );
   }
 
@@ -52,7 +52,7 @@ public class ConfigResolver {
     String key,
     LookupContext lookupContext
   ) {
-    return getMatch(key, lookupContext).map(Match::getConfigValue);
+    return getValueMatch(key, lookupContext).map(Match::getConfigValue);
   }
 
   public Optional<Match> getMatch(String key, LookupContext lookupContext) {
@@ -63,6 +63,15 @@ public class ConfigResolver {
     return configRuleEvaluator.getMatch(key, lookupContext);
   }
 
+  /**
+   * Like getMatch, but the Match carries no evaluated criteria
+   */
+  public Optional<Match> getValueMatch(String key, LookupContext lookupContext) {
+    return configRuleEvaluator
+      .getValueMatch(key, lookupContext)
+      .map(match -> reify(match, lookupContext));
+  }
+
   /**
    * Get all currently known parameter-less config values.
    * ConfigValues that are not visible unless passed an appropriate map of parameters are not here
@@ -78,9 +87,14 @@ public class ConfigResolver {
   }
 
   private Match reify(Match match, LookupContext lookupContext) {
+    Prefab.ConfigValue configValue = match.getConfigValue();
+    if (!configValue.hasProvided() && !configValue.hasDecryptWith()) {
+      // nothing to resolve, skip building a copy of the match
+      return match;
+    }
     Prefab.ConfigValue updatedConfigValue = reify(
       match.getConfigElement().getConfig(),
-      match.getConfigValue(),
+      configValue,
       lookupContext
     );
     return new Match(
@@ -118,7 +132,7 @@ public class ConfigResolver {
     }
     if (configValue.hasDecryptWith()) {
       // now we need to fetch a new key
-      Optional<Match> decryptionKeyMatchMaybe = getMatch(
+      Optional<Match> decryptionKeyMatchMaybe = getValueMatch(
         configValue.getDecryptWith(),
         lookupContext
       );
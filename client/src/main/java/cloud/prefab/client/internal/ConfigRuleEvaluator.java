@@ -2,30 +2,18 @@ package cloud.prefab.client.internal;
 
 import cloud.prefab.client.ConfigStore;
 import cloud.prefab.client.config.ConfigElement;
-import cloud.prefab.client.config.ConfigValueUtils;
 import cloud.prefab.client.config.EvaluatedCriterion;
 import cloud.prefab.client.config.Match;
 import cloud.prefab.client.config.logging.AbstractLoggingListener;
 import cloud.prefab.domain.Prefab;
-import com.google.common.collect.ImmutableMap;
-import com.google.common.collect.Sets;
-import com.google.common.collect.Streams;
-import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.Deque;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
 import java.util.Optional;
-import java.util.Set;
-import java.util.function.BiPredicate;
-import java.util.function.Predicate;
-import java.util.regex.Pattern;
-import java.util.regex.PatternSyntaxException;
 import java.util.stream.Collectors;
+import javax.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -59,6 +47,24 @@ public class ConfigRuleEvaluator {
     return getMatch(configElement, lookupContext);
   }
 
+  /**
+   * Like getMatch but without recording why each criterion matched: the returned Match has an
+   * empty evaluated criterion list. This is the path for callers that only need the value
+   * (and the row / value indexes for telemetry).
+   */
+  public Optional<Match> getValueMatch(String key, LookupContext lookupContext) {
+    final ConfigElement configElement = configStore.getElement(key);
+    if (configElement == null) {
+      // logging lookups generate a lot of misses so skip those
+      if (!key.startsWith(AbstractLoggingListener.LOG_LEVEL_PREFIX)) {
+        LOG.trace("No config value found for key {}", key);
+      }
+      return Optional.empty();
+    }
+
+    return getMatch(configElement, lookupContext, newEvaluation(lookupContext), false);
+  }
+
   /**
    * find if we have a match for the given properties
    *
@@ -70,109 +76,152 @@ public class ConfigRuleEvaluator {
     ConfigElement configElement,
     LookupContext lookupContext
   ) {
-    return getMatch(configElement, lookupContext, new LinkedList<>());
+    return getMatch(configElement, lookupContext, newEvaluation(lookupContext), true);
   }
 
-  private Optional<Match> getMatch(
+  /**
+   * Segment outcomes are shared by the evaluations made with one LookupContext against one
+   * snapshot, which this can only tell for the client's own store
+   */
+  private EvaluationStack newEvaluation(LookupContext lookupContext) {
+    if (configStore instanceof ConfigStoreImpl) {
+      return new EvaluationStack(
+        lookupContext.getSharedSegmentResults(((ConfigStoreImpl) configStore).getData())
+      );
+    }
+    return new EvaluationStack();
+  }
+
+  /**
+   * Evaluates the segment with the given key, sharing the row property stack of the calling config.
+   * Results are memoized (see SegmentResults) unless row properties are in play.
+   */
+  Optional<Match> getSegmentMatch(
     String key,
     LookupContext lookupContext,
-    Deque<Map<String, Prefab.ConfigValue>> rowPropertiesStack
+    EvaluationStack rowPropertiesStack,
+    boolean explain
   ) {
-    if (!configStore.containsKey(key)) {
+    final ConfigElement configElement = configStore.getElement(key);
+    if (configElement == null) {
       // logging lookups generate a lot of misses so skip those
       if (!key.startsWith(AbstractLoggingListener.LOG_LEVEL_PREFIX)) {
         LOG.trace("No config value found for key {}", key);
       }
       return Optional.empty();
     }
-    final ConfigElement configElement = configStore.getElement(key);
 
-    return getMatch(configElement, lookupContext, rowPropertiesStack);
+    return rowPropertiesStack
+      .getSegmentResults()
+      .evaluate(
+        configElement,
+        configElement.getCompiledConfig(configStore.getProjectEnvironmentId()),
+        rowPropertiesStack.isEmpty(),
+        explain,
+        () -> getMatch(configElement, lookupContext, rowPropertiesStack, explain)
+      );
   }
 
   private Optional<Match> getMatch(
     ConfigElement configElement,
     LookupContext lookupContext,
-    Deque<Map<String, Prefab.ConfigValue>> rowPropertiesStack
+    EvaluationStack rowPropertiesStack,
+    boolean explain
   ) {
-    // Prefer rows that have a projEnvId to ones that don't
+    // rows are compiled with those that have a projEnvId ahead of the ones that don't
     // There will be 0-1 rows with projenv and 0-1 rows without (the default row)
-
-    return Streams
-      .mapWithIndex(
-        configElement.getRowsProjEnvFirst(configStore.getProjectEnvironmentId()),
-        (configRow, rowIndex) -> {
-          if (!configRow.getPropertiesMap().isEmpty()) {
-            rowPropertiesStack.push(configRow.getPropertiesMap());
-          }
-          // Return the value of the first matching set of criteria
+    CompiledConfig.CompiledRow[] rows = configElement
+      .getCompiledConfig(configStore.getProjectEnvironmentId())
+      .getRows();
+
+    for (int rowIndex = 0; rowIndex < rows.length; rowIndex++) {
+      CompiledConfig.CompiledRow row = rows[rowIndex];
+      if (row.hasProperties()) {
+        rowPropertiesStack.push(row.getProperties());
+      }
+      try {
+        // Return the value of the first matching set of criteria
+        CompiledConfig.CompiledConditionalValue[] values = row.getValues();
+        for (
           int conditionalValueIndex = 0;
-          for (Prefab.ConditionalValue conditionalValue : configRow.getValuesList()) {
-            Optional<Match> optionalMatch = evaluateConditionalValue(
-              rowIndex,
-              conditionalValue,
-              conditionalValueIndex,
-              lookupContext,
-              rowPropertiesStack,
-              configElement,
-              configRow
-            );
-
-            if (optionalMatch.isPresent()) {
-              return optionalMatch.get();
-            }
-            conditionalValueIndex++;
-          }
-          if (!configRow.getPropertiesMap().isEmpty()) {
-            rowPropertiesStack.pop();
+          conditionalValueIndex < values.length;
+          conditionalValueIndex++
+        ) {
+          Match match = evaluateConditionalValue(
+            rowIndex,
+            values[conditionalValueIndex],
+            conditionalValueIndex,
+            lookupContext,
+            rowPropertiesStack,
+            configElement,
+            row,
+            explain
+          );
+          if (match != null) {
+            return Optional.of(match);
           }
-          return null;
         }
-      )
-      .filter(Objects::nonNull)
-      .findFirst();
+      } finally {
+        if (row.hasProperties()) {
+          rowPropertiesStack.pop();
+        }
+      }
+    }
+    return Optional.empty();
   }
 
   /**
-   * If all of the conditions match, return a true match
-   *
-   * @param conditionalValue
-   * @param rowProperties
-   * @param configElement
-   * @return
+   * If all of the conditions match, return a match, otherwise null
    */
-  private Optional<Match> evaluateConditionalValue(
-    long rowIndex,
-    Prefab.ConditionalValue conditionalValue,
+  @Nullable
+  private Match evaluateConditionalValue(
+    int rowIndex,
+    CompiledConfig.CompiledConditionalValue conditionalValue,
     int conditionalValueIndex,
     LookupContext lookupContext,
-    Deque<Map<String, Prefab.ConfigValue>> rowProperties,
+    EvaluationStack rowProperties,
     ConfigElement configElement,
-    Prefab.ConfigRow configRow
+    CompiledConfig.CompiledRow row,
+    boolean explain
   ) {
-    List<EvaluatedCriterion> evaluatedCriteria = new ArrayList<>();
-    for (Prefab.Criterion criterion : conditionalValue.getCriteriaList()) {
-      for (EvaluatedCriterion evaluateCriterion : evaluateCriterionMatch(
-        criterion,
+    CriterionMatcher[] matchers = conditionalValue.getMatchers();
+    if (!explain) {
+      for (CriterionMatcher matcher : matchers) {
+        if (!matcher.matches(this, lookupContext, rowProperties)) {
+          return null;
+        }
+      }
+      return simplifyToMatch(
+        rowIndex,
+        conditionalValue,
+        conditionalValueIndex,
+        configElement,
+        lookupContext,
+        Collections.emptyList(),
+        row
+      );
+    }
+    List<EvaluatedCriterion> evaluatedCriteria = new ArrayList<>(matchers.length);
+    for (CriterionMatcher matcher : matchers) {
+      for (EvaluatedCriterion evaluateCriterion : matcher.evaluate(
+        this,
         lookupContext,
         rowProperties
       )) {
         if (!evaluateCriterion.isMatch()) {
-          return Optional.empty();
+          return null;
         }
         evaluatedCriteria.add(evaluateCriterion);
       }
     }
-    return Optional.of(
-      simplifyToMatch(
-        rowIndex,
-        conditionalValue,
-        conditionalValueIndex,
-        configElement,
-        lookupContext,
-        evaluatedCriteria,
-        configRow
-      )
+    return simplifyToMatch(
+      rowIndex,
+      conditionalValue,
+      conditionalValueIndex,
+      configElement,
+      lookupContext,
+      evaluatedCriteria,
+      row
     );
   }
 
@@ -180,21 +229,18 @@ public class ConfigRuleEvaluator {
    * A ConfigValue may be a WeightedValue. If so break it down so we can return a simpler form.
    */
   private Match simplifyToMatch(
-    long rowIndex,
-    Prefab.ConditionalValue selectedConditionalValue,
+    int rowIndex,
+    CompiledConfig.CompiledConditionalValue conditionalValue,
     int conditionalValueIndex,
     ConfigElement configElement,
     LookupContext lookupContext,
     List<EvaluatedCriterion> evaluatedCriteria,
-    Prefab.ConfigRow configRow
+    CompiledConfig.CompiledRow row
   ) {
-    Optional<Long> envId = configRow.hasProjectEnvId()
-      ? Optional.of(configRow.getProjectEnvId())
-      : Optional.empty();
-
-    if (selectedConditionalValue.getValue().hasWeightedValues()) {
+    WeightedValueEvaluator.Distribution distribution = conditionalValue.getDistribution();
+    if (distribution != null) {
       WeightedValueEvaluator.Result result = weightedValueEvaluator.toResult(
-        selectedConditionalValue.getValue().getWeightedValues(),
+        distribution,
         configElement.getConfig().getKey(),
         lookupContext
       );
@@ -202,89 +248,92 @@ public class ConfigRuleEvaluator {
         result.getValue(),
         configElement,
         evaluatedCriteria,
-        (int) rowIndex,
+        rowIndex,
         conditionalValueIndex,
         Optional.of(result.getIndex()),
-        envId
+        row.getEnvId()
       );
     } else {
       return new Match(
-        selectedConditionalValue.getValue(),
+        conditionalValue.getValue(),
         configElement,
         evaluatedCriteria,
-        (int) rowIndex,
+        rowIndex,
         conditionalValueIndex,
         Optional.empty(),
-        envId
+        row.getEnvId()
       );
     }
   }
 
-  private List<String> keyAndLowerCasedKey(String key) {
-    String lowerCased = key.toLowerCase();
-    if (lowerCased.equals(key)) {
-      return Collections.singletonList(key);
-    }
-    return List.of(key, lowerCased);
+  Optional<Prefab.ConfigValue> prop(
+    String key,
+    LookupContext lookupContext,
+    EvaluationStack rowPropertiesStack
+  ) {
+    return Optional.ofNullable(propValue(key, lookupContext, rowPropertiesStack));
   }
 
-  private Optional<Prefab.ConfigValue> prop(
+  @Nullable
+  Prefab.ConfigValue propValue(
     String key,
     LookupContext lookupContext,
-    Deque<Map<String, Prefab.ConfigValue>> rowPropertiesStack
+    EvaluationStack rowPropertiesStack
   ) {
-    List<String> keysToLookup = keyAndLowerCasedKey(key);
+    String lowerCased = key.toLowerCase();
+    return propValue(
+      key,
+      lowerCased.equals(key) ? null : lowerCased,
+      lookupContext,
+      rowPropertiesStack
+    );
+  }
 
+  /**
+   * @param lowerCasedKey the lower cased key, or null if the key is already lower case; matchers
+   *                      work this out when they are compiled so lookups don't allocate
+   */
+  @Nullable
+  Prefab.ConfigValue propValue(
+    String key,
+    @Nullable String lowerCasedKey,
+    LookupContext lookupContext,
+    EvaluationStack rowPropertiesStack
+  ) {
     for (Map<String, Prefab.ConfigValue> rowProperties : rowPropertiesStack) {
-      for (String keyToLookup : keysToLookup) {
-        Prefab.ConfigValue rowPropValue = rowProperties.get(keyToLookup);
-        if (rowPropValue != null) {
-          return Optional.of(rowPropValue);
-        }
+      Prefab.ConfigValue rowPropValue = rowProperties.get(key);
+      if (rowPropValue == null && lowerCasedKey != null) {
+        rowPropValue = rowProperties.get(lowerCasedKey);
+      }
+      if (rowPropValue != null) {
+        return rowPropValue;
       }
     }
 
-    for (String keyToLookup : keysToLookup) {
-      Prefab.ConfigValue valueFromLookupContext = lookupContext
-        .getExpandedProperties()
-        .get(keyToLookup);
-      if (valueFromLookupContext != null) {
-        return Optional.of(valueFromLookupContext);
-      }
+    Prefab.ConfigValue valueFromLookupContext = lookupContext.getExpandedValue(key);
+    if (valueFromLookupContext == null && lowerCasedKey != null) {
+      valueFromLookupContext = lookupContext.getExpandedValue(lowerCasedKey);
+    }
+    if (valueFromLookupContext != null) {
+      return valueFromLookupContext;
     }
     //TODO: move this current time injection into a ContextResolver class?
     if (CURRENT_TIME_KEY.equals(key) || REFORGE_CURRENT_TIME_KEY.equals(key)) {
-      return Optional.of(
-        Prefab.ConfigValue.newBuilder().setInt(System.currentTimeMillis()).build()
-      );
-    }
-    return Optional.empty();
-  }
-
-  private Optional<Prefab.ConfigValue> getPropFromContextWrapper(
-    List<String> keysToLookup,
-    ContextWrapper contextWrapper
-  ) {
-    for (String keyToLookup : keysToLookup) {
-      Prefab.ConfigValue configValue = contextWrapper
-        .getConfigValueMap()
-        .get(keyToLookup);
-      if (configValue != null) {
-        return Optional.of(configValue);
-      }
+      return Prefab.ConfigValue.newBuilder().setInt(System.currentTimeMillis()).build();
     }
-    return Optional.empty();
+    return null;
   }
 
   List<EvaluatedCriterion> evaluateCriterionMatch(
     Prefab.Criterion criterion,
     LookupContext lookupContext
   ) {
-    return evaluateCriterionMatch(criterion, lookupContext, new LinkedList<>());
+    return evaluateCriterionMatch(criterion, lookupContext, new EvaluationStack());
   }
 
   /**
-   * Does this criterion match?
+   * Does this criterion match? Compiles the criterion on the fly;
+   * config evaluation uses the matchers compiled into each ConfigElement instead
    *
    * @param criterion
    * @return
@@ -292,333 +341,11 @@ public class ConfigRuleEvaluator {
   List<EvaluatedCriterion> evaluateCriterionMatch(
     Prefab.Criterion criterion,
     LookupContext lookupContext,
-    Deque<Map<String, Prefab.ConfigValue>> rowPropertiesStack
-  ) {
-    final Optional<Prefab.ConfigValue> prop = prop(
-      criterion.getPropertyName(),
-      lookupContext,
-      rowPropertiesStack
-    );
-    Optional<String> propStringValue = prop.flatMap(ConfigValueUtils::coerceToString);
-
-    switch (criterion.getOperator()) {
-      case ALWAYS_TRUE:
-        return List.of(new EvaluatedCriterion(criterion, true));
-      case HIERARCHICAL_MATCH:
-        if (prop.isPresent()) {
-          if (prop.get().hasString() && criterion.getValueToMatch().hasString()) {
-            final String propertyString = prop.get().getString();
-            return List.of(
-              new EvaluatedCriterion(
-                criterion,
-                criterion.getValueToMatch(),
-                hierarchicalMatch(propertyString, criterion.getValueToMatch().getString())
-              )
-            );
-          }
-        }
-        return List.of(
-          new EvaluatedCriterion(criterion, criterion.getValueToMatch(), false)
-        );
-      // The string here is the key of the Segment
-      case IN_SEG:
-        final Optional<Match> evaluatedSegment = getMatch(
-          criterion.getValueToMatch().getString(),
-          lookupContext,
-          rowPropertiesStack
-        );
-
-        if (
-          evaluatedSegment.isPresent() &&
-          evaluatedSegment.get().getConfigValue().hasBool() &&
-          evaluatedSegment.get().getConfigValue().getBool()
-        ) {
-          return evaluatedSegment.get().getEvaluatedCriterion();
-        } else {
-          return List.of(
-            new EvaluatedCriterion(
-              criterion,
-              "Missing Segment " + criterion.getValueToMatch().getString(),
-              false
-            )
-          );
-        }
-      case NOT_IN_SEG:
-        final Optional<Prefab.ConfigValue> evaluatedNotSegment = getMatch(
-          criterion.getValueToMatch().getString(),
-          lookupContext
-        )
-          .map(Match::getConfigValue);
-
-        if (evaluatedNotSegment.isPresent() && evaluatedNotSegment.get().hasBool()) {
-          return List.of(
-            new EvaluatedCriterion(
-              criterion,
-              criterion.getValueToMatch(),
-              !evaluatedNotSegment.get().getBool()
-            )
-          );
-        } else {
-          return List.of(
-            new EvaluatedCriterion(
-              criterion,
-              "Missing Segment " + criterion.getValueToMatch().getString(),
-              true
-            )
-          );
-        }
-      case PROP_IS_ONE_OF:
-      // fall through
-      case PROP_IS_NOT_ONE_OF:
-        // this is actually going to function as intersection -- true if there is non-empty overlap between the collection value on the left or on the right
-        Set<String> contextValueSet = prop
-          .map(ConfigRuleEvaluator::coerceToStringList)
-          .orElseGet(Collections::emptySet);
-        if (contextValueSet.isEmpty()) {
-          return List.of(
-            new EvaluatedCriterion(
-              criterion,
-              criterion.getOperator() ==
-              Prefab.Criterion.CriterionOperator.PROP_IS_NOT_ONE_OF
-            )
-          );
-        }
-        boolean nonEmptyIntersection = !Sets
-          .intersection(
-            contextValueSet,
-            Set.copyOf(criterion.getValueToMatch().getStringList().getValuesList())
-          )
-          .isEmpty();
-
-        // assumption that property is a String
-        return List.of(
-          new EvaluatedCriterion(
-            criterion,
-            propStringValue.get(),
-            nonEmptyIntersection ==
-            (criterion.getOperator() == Prefab.Criterion.CriterionOperator.PROP_IS_ONE_OF)
-          )
-        );
-      case PROP_ENDS_WITH_ONE_OF:
-      // fall through
-      case PROP_DOES_NOT_END_WITH_ONE_OF:
-        return evaluateStringOperation(
-          criterion,
-          criterion.getOperator() ==
-          Prefab.Criterion.CriterionOperator.PROP_DOES_NOT_END_WITH_ONE_OF,
-          String::endsWith,
-          prop
-        );
-      case PROP_CONTAINS_ONE_OF:
-      // fall through
-      case PROP_DOES_NOT_CONTAIN_ONE_OF:
-        return evaluateStringOperation(
-          criterion,
-          criterion.getOperator() ==
-          Prefab.Criterion.CriterionOperator.PROP_DOES_NOT_CONTAIN_ONE_OF,
-          String::contains,
-          prop
-        );
-      case PROP_STARTS_WITH_ONE_OF:
-      // fall through
-      case PROP_DOES_NOT_START_WITH_ONE_OF:
-        return evaluateStringOperation(
-          criterion,
-          criterion.getOperator() ==
-          Prefab.Criterion.CriterionOperator.PROP_DOES_NOT_START_WITH_ONE_OF,
-          String::startsWith,
-          prop
-        );
-      case IN_INT_RANGE:
-        if (
-          prop.isPresent() &&
-          prop.get().hasInt() &&
-          criterion.getValueToMatch().hasIntRange()
-        ) {
-          return List.of(
-            new EvaluatedCriterion(
-              criterion,
-              IntRangeWrapper
-                .of(criterion.getValueToMatch().getIntRange())
-                .contains(prop.get().getInt())
-            )
-          );
-        }
-      case PROP_GREATER_THAN:
-      // fall through
-      case PROP_GREATER_THAN_OR_EQUAL:
-      // fall through
-      case PROP_LESS_THAN:
-      // fall through
-      case PROP_LESS_THAN_OR_EQUAL:
-        return evaluateNumericComparison(criterion, prop);
-      case PROP_AFTER:
-      // fall through
-      case PROP_BEFORE:
-        return evaluateDateComparison(criterion, prop);
-      case PROP_MATCHES:
-      // fall through
-      case PROP_DOES_NOT_MATCH:
-        return evaluateRegexMatch(criterion, prop);
-      case PROP_SEMVER_LESS_THAN:
-      // fall through
-      case PROP_SEMVER_EQUAL:
-      // fall through
-      case PROP_SEMVER_GREATER_THAN:
-        return evaluateSemverComparison(criterion, prop);
-      default:
-        LOG.debug(
-          "Unexpected operator {} found in criterion {}",
-          criterion.getOperator(),
-          criterion
-        );
-    }
-    // Unknown Operator
-    return List.of(new EvaluatedCriterion(criterion, false));
-  }
-
-  private List<EvaluatedCriterion> evaluateSemverComparison(
-    Prefab.Criterion criterion,
-    Optional<Prefab.ConfigValue> valueFromContext
-  ) {
-    boolean comparison = false;
-
-    Optional<SemanticVersion> semVerToMatch = getCriterionValueToMatch(criterion)
-      .flatMap(this::getSemanticVersion);
-    Optional<SemanticVersion> semVerFromContext = valueFromContext.flatMap(
-      this::getSemanticVersion
-    );
-
-    if (semVerFromContext.isPresent() && semVerToMatch.isPresent()) {
-      comparison =
-        Optional
-          .ofNullable(SEMVER_COMPARE_TO_EVAL.get(criterion.getOperator()))
-          .orElse(v -> false)
-          .test(semVerFromContext.get().compareTo(semVerToMatch.get()));
-    }
-
-    return List.of(new EvaluatedCriterion(criterion, valueFromContext, comparison));
-  }
-
-  private List<EvaluatedCriterion> evaluateRegexMatch(
-    Prefab.Criterion criterion,
-    Optional<Prefab.ConfigValue> valueFromContext
+    EvaluationStack rowPropertiesStack
   ) {
-    boolean comparison = false;
-    Optional<Pattern> patternToMatchMaybe = getCriterionValueToMatch(criterion)
-      .flatMap(this::getCompiledPattern);
-    if (patternToMatchMaybe.isPresent() && valueFromContext.isPresent()) {
-      boolean matches = patternToMatchMaybe
-        .get()
-        .matcher(valueFromContext.get().getString())
-        .matches();
-      comparison =
-        negate(
-          matches,
-          criterion.getOperator() ==
-          Prefab.Criterion.CriterionOperator.PROP_DOES_NOT_MATCH
-        );
-    }
-    return List.of(new EvaluatedCriterion(criterion, comparison));
-  }
-
-  private List<EvaluatedCriterion> evaluateDateComparison(
-    Prefab.Criterion criterion,
-    Optional<Prefab.ConfigValue> valueFromContext
-  ) {
-    boolean comparison = false;
-    Optional<Instant> dateToCompare = getCriterionValueToMatch(criterion)
-      .flatMap(ConfigValueUtils::asDate);
-
-    Optional<Instant> dateFromContext = valueFromContext.flatMap(
-      ConfigValueUtils::asDate
-    );
-
-    if (dateToCompare.isPresent() && dateFromContext.isPresent()) {
-      if (criterion.getOperator() == Prefab.Criterion.CriterionOperator.PROP_BEFORE) {
-        comparison = dateFromContext.get().isBefore(dateToCompare.get());
-      }
-      if (criterion.getOperator() == Prefab.Criterion.CriterionOperator.PROP_AFTER) {
-        comparison = dateFromContext.get().isAfter(dateToCompare.get());
-      }
-    }
-    return List.of(new EvaluatedCriterion(criterion, comparison));
-  }
-
-  private List<EvaluatedCriterion> evaluateNumericComparison(
-    Prefab.Criterion criterion,
-    Optional<Prefab.ConfigValue> valueFromContext
-  ) {
-    boolean comparison = false;
-
-    Optional<Number> numberToMatch = getCriterionValueToMatch(criterion)
-      .flatMap(this::getNumber);
-    Optional<Number> numberFromContext = valueFromContext.flatMap(this::getNumber);
-
-    if (numberToMatch.isPresent() && numberFromContext.isPresent()) {
-      comparison =
-        Optional
-          .ofNullable(NUMERIC_COMPARE_TO_EVAL.get(criterion.getOperator()))
-          .orElse(v -> false)
-          .test(compareTo(numberFromContext.get(), numberToMatch.get()));
-    }
-
-    return List.of(new EvaluatedCriterion(criterion, valueFromContext, comparison));
-  }
-
-  private int compareTo(Number number1, Number number2) {
-    return Double.compare(number1.doubleValue(), number2.doubleValue());
-  }
-
-  Map<Prefab.Criterion.CriterionOperator, Predicate<Integer>> NUMERIC_COMPARE_TO_EVAL = ImmutableMap.of(
-    Prefab.Criterion.CriterionOperator.PROP_GREATER_THAN,
-    v -> v > 0,
-    Prefab.Criterion.CriterionOperator.PROP_GREATER_THAN_OR_EQUAL,
-    v -> v >= 0,
-    Prefab.Criterion.CriterionOperator.PROP_LESS_THAN,
-    v -> v < 0,
-    Prefab.Criterion.CriterionOperator.PROP_LESS_THAN_OR_EQUAL,
-    v -> v <= 0
-  );
-
-  Map<Prefab.Criterion.CriterionOperator, Predicate<Integer>> SEMVER_COMPARE_TO_EVAL = ImmutableMap.of(
-    Prefab.Criterion.CriterionOperator.PROP_SEMVER_GREATER_THAN,
-    v -> v > 0,
-    Prefab.Criterion.CriterionOperator.PROP_SEMVER_EQUAL,
-    v -> v == 0,
-    Prefab.Criterion.CriterionOperator.PROP_SEMVER_LESS_THAN,
-    v -> v < 0
-  );
-
-  private Optional<Prefab.ConfigValue> getCriterionValueToMatch(
-    Prefab.Criterion criterion
-  ) {
-    if (criterion.hasValueToMatch()) {
-      return Optional.of(criterion.getValueToMatch());
-    }
-    return Optional.empty();
-  }
-
-  private Optional<SemanticVersion> getSemanticVersion(Prefab.ConfigValue configValue) {
-    return Optional.ofNullable(SemanticVersion.parseQuietly(configValue.getString()));
-  }
-
-  private Optional<Pattern> getCompiledPattern(Prefab.ConfigValue configValue) {
-    try {
-      return Optional.of(Pattern.compile(configValue.getString()));
-    } catch (PatternSyntaxException e) {
-      return Optional.empty();
-    }
-  }
-
-  private Optional<Number> getNumber(Prefab.ConfigValue configValue) {
-    if (configValue.hasInt()) {
-      return Optional.of(configValue.getInt());
-    }
-    if (configValue.hasDouble()) {
-      return Optional.of(configValue.getDouble());
-    }
-    return Optional.empty();
+    return CriterionMatcher
+      .of(criterion)
+      .evaluate(this, lookupContext, rowPropertiesStack);
   }
 
   static boolean negate(boolean result, boolean negate) {
@@ -628,28 +355,6 @@ public class ConfigRuleEvaluator {
     return result;
   }
 
-  List<EvaluatedCriterion> evaluateStringOperation(
-    Prefab.Criterion criterion,
-    boolean negated,
-    BiPredicate<String, String> predicate,
-    Optional<Prefab.ConfigValue> prop
-  ) {
-    if (prop.isPresent() && prop.get().hasString()) {
-      final boolean matched = criterion
-        .getValueToMatch()
-        .getStringList()
-        .getValuesList()
-        .stream()
-        .anyMatch(value -> predicate.test(prop.get().getString(), value));
-
-      return List.of(
-        new EvaluatedCriterion(criterion, prop.get(), negate(matched, negated))
-      );
-    } else {
-      return List.of(new EvaluatedCriterion(criterion, negated));
-    }
-  }
-
   /**
    * a.b.c match a.b -> true
    * a.b match a.b.c -> false
@@ -683,14 +388,4 @@ public class ConfigRuleEvaluator {
   public boolean containsKey(String key) {
     return configStore.containsKey(key);
   }
-
-  private static Set<String> coerceToStringList(Prefab.ConfigValue configValue) {
-    if (configValue.getTypeCase() == Prefab.ConfigValue.TypeCase.STRING_LIST) {
-      return Set.copyOf(configValue.getStringList().getValuesList());
-    }
-    return ConfigValueUtils
-      .coerceToString(configValue)
-      .map(Collections::singleton)
-      .orElseGet(Collections::emptySet);
-  }
 }
@@ -57,6 +57,13 @@ public class ConfigStoreImpl implements ConfigStore {
     return data.get().getConfigIncludedContext();
   }
 
+  /**
+   * The current snapshot, for callers that need several views of it to agree
+   */
+  MergedConfigData getData() {
+    return data.get();
+  }
+
   @Override
   public PrefabContextSetReadable getGlobalContext() {
     return data.get().getGlobalContextSet();
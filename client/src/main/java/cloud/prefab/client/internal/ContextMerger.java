@@ -1,34 +1,47 @@
 package cloud.prefab.client.internal;
 
+import cloud.prefab.context.FrozenPrefabContextSet;
 import cloud.prefab.context.PrefabContext;
-import cloud.prefab.context.PrefabContextSet;
 import cloud.prefab.context.PrefabContextSetReadable;
-import com.google.common.base.Predicates;
-import java.util.function.Predicate;
-import java.util.stream.Stream;
+import java.util.Arrays;
 import javax.annotation.Nullable;
 
 public class ContextMerger {
 
+  /**
+   * Merges context sets in increasing order of precedence, e.g. global, api default, context
+   * store, passed. Null and empty sets are skipped, a single remaining set is returned as is and
+   * otherwise the result is a layered view. Immutable sets (frozen sets, single contexts) are
+   * used without copying; mutable ones are frozen here, as the result can be read later on
+   * another thread (e.g. by telemetry) while the caller goes on to change or reuse its set.
+   */
   public static PrefabContextSetReadable merge(
-    @Nullable PrefabContextSetReadable globalContext,
-    @Nullable PrefabContextSetReadable apiDefaultContext,
-    @Nullable PrefabContextSetReadable contextStoreContext,
-    @Nullable PrefabContextSetReadable passedContext
+    @Nullable PrefabContextSetReadable... contextSets
   ) {
-    // use naive strategy for now,
-    PrefabContextSet prefabContextSet = new PrefabContextSet();
-
-    Stream
-      .of(globalContext, apiDefaultContext, contextStoreContext, passedContext)
-      .filter(Predicates.notNull())
-      .filter(Predicate.not(PrefabContextSetReadable::isEmpty))
-      .forEach(prefabContextSetReadable -> {
-        for (PrefabContext context : prefabContextSetReadable.getContexts()) {
-          prefabContextSet.addContext(context);
-        }
-      });
+    PrefabContextSetReadable[] layers = new PrefabContextSetReadable[contextSets.length];
+    int layerCount = 0;
+    for (PrefabContextSetReadable contextSet : contextSets) {
+      if (contextSet != null && !contextSet.isEmpty()) {
+        layers[layerCount++] = immutable(contextSet);
+      }
+    }
+    if (layerCount == 0) {
+      return PrefabContextSetReadable.EMPTY;
+    }
+    if (layerCount == 1) {
+      return layers[0];
+    }
+    return new LayeredContextSet(Arrays.copyOf(layers, layerCount));
+  }
 
-    return prefabContextSet;
+  private static PrefabContextSetReadable immutable(PrefabContextSetReadable contextSet) {
+    if (
+      contextSet instanceof FrozenPrefabContextSet ||
+      contextSet instanceof PrefabContext ||
+      contextSet instanceof LayeredContextSet
+    ) {
+      return contextSet;
+    }
+    return FrozenPrefabContextSet.of(contextSet);
   }
 }
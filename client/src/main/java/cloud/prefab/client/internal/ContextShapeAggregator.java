@@ -8,12 +8,16 @@ import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.stream.StreamSupport;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * Capture context "shape" and
+ * Capture context "shape" (the type of each property of each named context) for telemetry.
+ * Shapes are recognized by PrefabContext.getShapeSignature, cached on the context. Each
+ * context name remembers the signature of the shape last merged into its field types, so
+ * reporting a context with that same shape costs one map lookup. Any other shape is
+ * merged again (built only the first time its signature is seen), so a field whose type
+ * changed is recorded with the type of the latest shape it appeared in.
  */
 public class ContextShapeAggregator {
 
@@ -21,6 +25,11 @@ public class ContextShapeAggregator {
 
   private final ConcurrentHashMap<String, ConcurrentHashMap<String, Integer>> shapes;
 
+  private final ConcurrentHashMap<Long, Prefab.ContextShape> shapesBySignature = new ConcurrentHashMap<>();
+
+  // the signature of the shape last merged for each context name, written holding this
+  private final ConcurrentHashMap<String, Long> lastRecordedSignatures = new ConcurrentHashMap<>();
+
   private final AtomicBoolean dirtyFlag = new AtomicBoolean(true);
 
   ContextShapeAggregator() {
@@ -28,30 +37,46 @@ public class ContextShapeAggregator {
   }
 
   void reportContextUsage(PrefabContextSetReadable prefabContextSetReadable) {
-    Prefab.ContextShapes currentShapes = extractShapes(prefabContextSetReadable);
-    for (Prefab.ContextShape contextShape : currentShapes.getShapesList()) {
-      ConcurrentHashMap<String, Integer> contextMap = shapes.computeIfAbsent(
-        contextShape.getName(),
-        key -> new ConcurrentHashMap<>()
-      );
-      contextShape
-        .getFieldTypesMap()
-        .forEach((key, value) -> {
-          Integer oldValue = contextMap.put(key, value);
-          if (!Objects.equals(oldValue, value)) {
-            boolean dirtyFlagRaised = dirtyFlag.compareAndSet(false, true);
-            if (dirtyFlagRaised && LOG.isTraceEnabled()) {
-              LOG.trace(
-                "dirty flag raised by context name: {} and property {}",
-                contextShape.getName(),
-                key
-              );
-            }
-          }
-        });
+    for (PrefabContext prefabContext : prefabContextSetReadable.getContexts()) {
+      long signature = prefabContext.getShapeSignature();
+      Long lastRecordedSignature = lastRecordedSignatures.get(prefabContext.getName());
+      if (lastRecordedSignature == null || lastRecordedSignature != signature) {
+        recordShape(prefabContext, signature);
+      }
     }
   }
 
+  private synchronized void recordShape(PrefabContext prefabContext, long signature) {
+    Prefab.ContextShape contextShape = shapesBySignature.computeIfAbsent(
+      signature,
+      ignored -> prefabContext.getShape()
+    );
+    recordShape(contextShape);
+    lastRecordedSignatures.put(prefabContext.getName(), signature);
+  }
+
+  private void recordShape(Prefab.ContextShape contextShape) {
+    ConcurrentHashMap<String, Integer> contextMap = shapes.computeIfAbsent(
+      contextShape.getName(),
+      key -> new ConcurrentHashMap<>()
+    );
+    contextShape
+      .getFieldTypesMap()
+      .forEach((key, value) -> {
+        Integer oldValue = contextMap.put(key, value);
+        if (!Objects.equals(oldValue, value)) {
+          boolean dirtyFlagRaised = dirtyFlag.compareAndSet(false, true);
+          if (dirtyFlagRaised && LOG.isTraceEnabled()) {
+            LOG.trace(
+              "dirty flag raised by context name: {} and property {}",
+              contextShape.getName(),
+              key
+            );
+          }
+        }
+      });
+  }
+
   Optional<Prefab.ContextShapes> getShapesIfNewInfo() {
     if (dirtyFlag.get()) {
       return Optional.of(getShapes());
@@ -76,15 +101,4 @@ public class ContextShapeAggregator {
 
     return shapesBuilder.build();
   }
-
-  private Prefab.ContextShapes extractShapes(
-    PrefabContextSetReadable prefabContextSetReadable
-  ) {
-    Prefab.ContextShapes.Builder shapesBuilder = Prefab.ContextShapes.newBuilder();
-    StreamSupport
-      .stream(prefabContextSetReadable.getContexts().spliterator(), false)
-      .map(PrefabContext::getShape)
-      .forEach(shapesBuilder::addShapes);
-    return shapesBuilder.build();
-  }
 }
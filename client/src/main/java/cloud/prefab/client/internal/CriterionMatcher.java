@@ -0,0 +1,822 @@
+package cloud.prefab.client.internal;
+
+import cloud.prefab.client.config.ConfigValueUtils;
+import cloud.prefab.client.config.EvaluatedCriterion;
+import cloud.prefab.client.config.Match;
+import cloud.prefab.domain.Prefab;
+import com.google.common.collect.ImmutableSet;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.IntPredicate;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Evaluates a single criterion. Instances are created once per criterion when a config is compiled
+ * (see {@link CompiledConfig}) so the operator dispatch happens at load time rather than on every lookup.
+ */
+abstract class CriterionMatcher {
+
+  private static final Logger LOG = LoggerFactory.getLogger(CriterionMatcher.class);
+
+  final Prefab.Criterion criterion;
+
+  // property names are matched as given, then lower cased; both forms are worked out here once
+  private final String propertyName;
+
+  @Nullable
+  private final String lowerCasedPropertyName;
+
+  CriterionMatcher(Prefab.Criterion criterion) {
+    this.criterion = criterion;
+    this.propertyName = criterion.getPropertyName();
+    String lowerCased = propertyName.toLowerCase();
+    this.lowerCasedPropertyName = lowerCased.equals(propertyName) ? null : lowerCased;
+  }
+
+  Prefab.Criterion getCriterion() {
+    return criterion;
+  }
+
+  /**
+   * Evaluates the criterion, recording the property it was evaluated against
+   */
+  abstract List<EvaluatedCriterion> evaluate(
+    ConfigRuleEvaluator evaluator,
+    LookupContext lookupContext,
+    EvaluationStack rowPropertiesStack
+  );
+
+  /**
+   * Same outcome as evaluate, without building the explanation
+   */
+  abstract boolean matches(
+    ConfigRuleEvaluator evaluator,
+    LookupContext lookupContext,
+    EvaluationStack rowPropertiesStack
+  );
+
+  Optional<Prefab.ConfigValue> prop(
+    ConfigRuleEvaluator evaluator,
+    LookupContext lookupContext,
+    EvaluationStack rowPropertiesStack
+  ) {
+    return Optional.ofNullable(propValue(evaluator, lookupContext, rowPropertiesStack));
+  }
+
+  @Nullable
+  Prefab.ConfigValue propValue(
+    ConfigRuleEvaluator evaluator,
+    LookupContext lookupContext,
+    EvaluationStack rowPropertiesStack
+  ) {
+    return evaluator.propValue(
+      propertyName,
+      lowerCasedPropertyName,
+      lookupContext,
+      rowPropertiesStack
+    );
+  }
+
+  static CriterionMatcher of(Prefab.Criterion criterion) {
+    switch (criterion.getOperator()) {
+      case ALWAYS_TRUE:
+        return new AlwaysTrueMatcher(criterion);
+      case HIERARCHICAL_MATCH:
+        return new HierarchicalMatcher(criterion);
+      case IN_SEG:
+        return new InSegmentMatcher(criterion);
+      case NOT_IN_SEG:
+        return new NotInSegmentMatcher(criterion);
+      case PROP_IS_ONE_OF:
+        return new OneOfMatcher(criterion, false);
+      case PROP_IS_NOT_ONE_OF:
+        return new OneOfMatcher(criterion, true);
+      case PROP_ENDS_WITH_ONE_OF:
+        return new StringOperationMatcher(
+          criterion,
+          false,
+          MultiPatternMatcher::suffixes
+        );
+      case PROP_DOES_NOT_END_WITH_ONE_OF:
+        return new StringOperationMatcher(
+          criterion,
+          true,
+          MultiPatternMatcher::suffixes
+        );
+      case PROP_CONTAINS_ONE_OF:
+        return new StringOperationMatcher(
+          criterion,
+          false,
+          MultiPatternMatcher::substrings
+        );
+      case PROP_DOES_NOT_CONTAIN_ONE_OF:
+        return new StringOperationMatcher(
+          criterion,
+          true,
+          MultiPatternMatcher::substrings
+        );
+      case PROP_STARTS_WITH_ONE_OF:
+        return new StringOperationMatcher(
+          criterion,
+          false,
+          MultiPatternMatcher::prefixes
+        );
+      case PROP_DOES_NOT_START_WITH_ONE_OF:
+        return new StringOperationMatcher(
+          criterion,
+          true,
+          MultiPatternMatcher::prefixes
+        );
+      case IN_INT_RANGE:
+        return new IntRangeMatcher(criterion);
+      case PROP_GREATER_THAN:
+        return new NumericComparisonMatcher(criterion, v -> v > 0);
+      case PROP_GREATER_THAN_OR_EQUAL:
+        return new NumericComparisonMatcher(criterion, v -> v >= 0);
+      case PROP_LESS_THAN:
+        return new NumericComparisonMatcher(criterion, v -> v < 0);
+      case PROP_LESS_THAN_OR_EQUAL:
+        return new NumericComparisonMatcher(criterion, v -> v <= 0);
+      case PROP_BEFORE:
+        return new DateComparisonMatcher(criterion, true);
+      case PROP_AFTER:
+        return new DateComparisonMatcher(criterion, false);
+      case PROP_MATCHES:
+        return new RegexMatcher(criterion, false);
+      case PROP_DOES_NOT_MATCH:
+        return new RegexMatcher(criterion, true);
+      case PROP_SEMVER_LESS_THAN:
+        return new SemverComparisonMatcher(criterion, v -> v < 0);
+      case PROP_SEMVER_EQUAL:
+        return new SemverComparisonMatcher(criterion, v -> v == 0);
+      case PROP_SEMVER_GREATER_THAN:
+        return new SemverComparisonMatcher(criterion, v -> v > 0);
+      default:
+        LOG.debug(
+          "Unexpected operator {} found in criterion {}",
+          criterion.getOperator(),
+          criterion
+        );
+        return new ConstantMatcher(criterion, false);
+    }
+  }
+
+  static Optional<Prefab.ConfigValue> getCriterionValueToMatch(
+    Prefab.Criterion criterion
+  ) {
+    if (criterion.hasValueToMatch()) {
+      return Optional.of(criterion.getValueToMatch());
+    }
+    return Optional.empty();
+  }
+
+  static Optional<Number> getNumber(Prefab.ConfigValue configValue) {
+    if (configValue.hasInt()) {
+      return Optional.of(configValue.getInt());
+    }
+    if (configValue.hasDouble()) {
+      return Optional.of(configValue.getDouble());
+    }
+    return Optional.empty();
+  }
+
+  static Optional<SemanticVersion> getSemanticVersion(Prefab.ConfigValue configValue) {
+    return Optional.ofNullable(SemanticVersion.parseQuietly(configValue.getString()));
+  }
+
+  static Optional<Pattern> getCompiledPattern(Prefab.ConfigValue configValue) {
+    try {
+      return Optional.of(Pattern.compile(configValue.getString()));
+    } catch (PatternSyntaxException e) {
+      return Optional.empty();
+    }
+  }
+
+  // outcome fixed at compile time, see CompiledConditionalValue
+  static class ConstantMatcher extends CriterionMatcher {
+
+    private final boolean match;
+    private final List<EvaluatedCriterion> result;
+
+    ConstantMatcher(Prefab.Criterion criterion, boolean match) {
+      super(criterion);
+      this.match = match;
+      this.result = List.of(new EvaluatedCriterion(criterion, match));
+    }
+
+    @Override
+    List<EvaluatedCriterion> evaluate(
+      ConfigRuleEvaluator evaluator,
+      LookupContext lookupContext,
+      EvaluationStack rowPropertiesStack
+    ) {
+      return result;
+    }
+
+    @Override
+    boolean matches(
+      ConfigRuleEvaluator evaluator,
+      LookupContext lookupContext,
+      EvaluationStack rowPropertiesStack
+    ) {
+      return match;
+    }
+
+    boolean getMatch() {
+      return match;
+    }
+  }
+
+  static class AlwaysTrueMatcher extends ConstantMatcher {
+
+    AlwaysTrueMatcher(Prefab.Criterion criterion) {
+      super(criterion, true);
+    }
+  }
+
+  static class HierarchicalMatcher extends CriterionMatcher {
+
+    HierarchicalMatcher(Prefab.Criterion criterion) {
+      super(criterion);
+    }
+
+    @Override
+    List<EvaluatedCriterion> evaluate(
+      ConfigRuleEvaluator evaluator,
+      LookupContext lookupContext,
+      EvaluationStack rowPropertiesStack
+    ) {
+      return List.of(
+        new EvaluatedCriterion(
+          criterion,
+          criterion.getValueToMatch(),
+          matches(evaluator, lookupContext, rowPropertiesStack)
+        )
+      );
+    }
+
+    @Override
+    boolean matches(
+      ConfigRuleEvaluator evaluator,
+      LookupContext lookupContext,
+      EvaluationStack rowPropertiesStack
+    ) {
+      Prefab.ConfigValue prop = propValue(evaluator, lookupContext, rowPropertiesStack);
+      return (
+        prop != null &&
+        prop.hasString() &&
+        criterion.getValueToMatch().hasString() &&
+        evaluator.hierarchicalMatch(
+          prop.getString(),
+          criterion.getValueToMatch().getString()
+        )
+      );
+    }
+  }
+
+  // The string value to match is the key of the Segment
+  static class InSegmentMatcher extends CriterionMatcher {
+
+    private final String segmentKey;
+
+    InSegmentMatcher(Prefab.Criterion criterion) {
+      super(criterion);
+      this.segmentKey = criterion.getValueToMatch().getString();
+    }
+
+    @Override
+    List<EvaluatedCriterion> evaluate(
+      ConfigRuleEvaluator evaluator,
+      LookupContext lookupContext,
+      EvaluationStack rowPropertiesStack
+    ) {
+      Optional<Match> evaluatedSegment = evaluator.getSegmentMatch(
+        segmentKey,
+        lookupContext,
+        rowPropertiesStack,
+        true
+      );
+      if (evaluatedSegment.isPresent() && isTrue(evaluatedSegment.get())) {
+        return evaluatedSegment.get().getEvaluatedCriterion();
+      }
+      return List.of(
+        new EvaluatedCriterion(criterion, "Missing Segment " + segmentKey, false)
+      );
+    }
+
+    @Override
+    boolean matches(
+      ConfigRuleEvaluator evaluator,
+      LookupContext lookupContext,
+      EvaluationStack rowPropertiesStack
+    ) {
+      return evaluator
+        .getSegmentMatch(segmentKey, lookupContext, rowPropertiesStack, false)
+        .map(InSegmentMatcher::isTrue)
+        .orElse(false);
+    }
+
+    private static boolean isTrue(Match segmentMatch) {
+      return (
+        segmentMatch.getConfigValue().hasBool() && segmentMatch.getConfigValue().getBool()
+      );
+    }
+  }
+
+  static class NotInSegmentMatcher extends CriterionMatcher {
+
+    private final String segmentKey;
+
+    NotInSegmentMatcher(Prefab.Criterion criterion) {
+      super(criterion);
+      this.segmentKey = criterion.getValueToMatch().getString();
+    }
+
+    @Override
+    List<EvaluatedCriterion> evaluate(
+      ConfigRuleEvaluator evaluator,
+      LookupContext lookupContext,
+      EvaluationStack rowPropertiesStack
+    ) {
+      Optional<Prefab.ConfigValue> evaluatedNotSegment = evaluator
+        .getSegmentMatch(
+          segmentKey,
+          lookupContext,
+          rowPropertiesStack.withoutRowProperties(),
+          false
+        )
+        .map(Match::getConfigValue);
+
+      if (evaluatedNotSegment.isPresent() && evaluatedNotSegment.get().hasBool()) {
+        return List.of(
+          new EvaluatedCriterion(
+            criterion,
+            criterion.getValueToMatch(),
+            !evaluatedNotSegment.get().getBool()
+          )
+        );
+      }
+      return List.of(
+        new EvaluatedCriterion(criterion, "Missing Segment " + segmentKey, true)
+      );
+    }
+
+    @Override
+    boolean matches(
+      ConfigRuleEvaluator evaluator,
+      LookupContext lookupContext,
+      EvaluationStack rowPropertiesStack
+    ) {
+      return evaluator
+        .getSegmentMatch(
+          segmentKey,
+          lookupContext,
+          rowPropertiesStack.withoutRowProperties(),
+          false
+        )
+        .map(Match::getConfigValue)
+        .filter(Prefab.ConfigValue::hasBool)
+        .map(segmentValue -> !segmentValue.getBool())
+        .orElse(true);
+    }
+  }
+
+  // this is actually going to function as intersection -- true if there is non-empty overlap between the collection value on the left or on the right
+  static class OneOfMatcher extends CriterionMatcher {
+
+    private final boolean negated;
+
+    // built once per config version so membership is a hash probe per context value
+    private final ImmutableSet<String> valuesToMatch;
+
+    OneOfMatcher(Prefab.Criterion criterion, boolean negated) {
+      super(criterion);
+      this.negated = negated;
+      this.valuesToMatch =
+        ImmutableSet.copyOf(criterion.getValueToMatch().getStringList().getValuesList());
+    }
+
+    @Override
+    List<EvaluatedCriterion> evaluate(
+      ConfigRuleEvaluator evaluator,
+      LookupContext lookupContext,
+      EvaluationStack rowPropertiesStack
+    ) {
+      Prefab.ConfigValue contextValue = propValue(
+        evaluator,
+        lookupContext,
+        rowPropertiesStack
+      );
+      if (contextValue == null || !isComparable(contextValue)) {
+        return List.of(new EvaluatedCriterion(criterion, negated));
+      }
+
+      // assumption that property is a String
+      return List.of(
+        new EvaluatedCriterion(
+          criterion,
+          ConfigValueUtils.coerceToString(contextValue).get(),
+          intersects(contextValue) != negated
+        )
+      );
+    }
+
+    @Override
+    boolean matches(
+      ConfigRuleEvaluator evaluator,
+      LookupContext lookupContext,
+      EvaluationStack rowPropertiesStack
+    ) {
+      Prefab.ConfigValue contextValue = propValue(
+        evaluator,
+        lookupContext,
+        rowPropertiesStack
+      );
+      if (contextValue == null || !isComparable(contextValue)) {
+        return negated;
+      }
+      return intersects(contextValue) != negated;
+    }
+
+    private static boolean isComparable(Prefab.ConfigValue contextValue) {
+      switch (contextValue.getTypeCase()) {
+        case STRING:
+          return true;
+        case STRING_LIST:
+          return contextValue.getStringList().getValuesCount() > 0;
+        default:
+          return ConfigValueUtils.coerceToString(contextValue).isPresent();
+      }
+    }
+
+    private boolean intersects(Prefab.ConfigValue contextValue) {
+      switch (contextValue.getTypeCase()) {
+        case STRING:
+          return valuesToMatch.contains(contextValue.getString());
+        case STRING_LIST:
+          for (String value : contextValue.getStringList().getValuesList()) {
+            if (valuesToMatch.contains(value)) {
+              return true;
+            }
+          }
+          return false;
+        default:
+          return valuesToMatch.contains(
+            ConfigValueUtils.coerceToString(contextValue).get()
+          );
+      }
+    }
+  }
+
+  static class StringOperationMatcher extends CriterionMatcher {
+
+    private final boolean negated;
+    private final MultiPatternMatcher patterns;
+
+    StringOperationMatcher(
+      Prefab.Criterion criterion,
+      boolean negated,
+      Function<List<String>, MultiPatternMatcher> patternsFactory
+    ) {
+      super(criterion);
+      this.negated = negated;
+      this.patterns =
+        patternsFactory.apply(
+          criterion.getValueToMatch().getStringList().getValuesList()
+        );
+    }
+
+    @Override
+    List<EvaluatedCriterion> evaluate(
+      ConfigRuleEvaluator evaluator,
+      LookupContext lookupContext,
+      EvaluationStack rowPropertiesStack
+    ) {
+      Prefab.ConfigValue prop = propValue(evaluator, lookupContext, rowPropertiesStack);
+      if (prop != null && prop.hasString()) {
+        return List.of(new EvaluatedCriterion(criterion, prop, test(prop)));
+      }
+      return List.of(new EvaluatedCriterion(criterion, negated));
+    }
+
+    @Override
+    boolean matches(
+      ConfigRuleEvaluator evaluator,
+      LookupContext lookupContext,
+      EvaluationStack rowPropertiesStack
+    ) {
+      Prefab.ConfigValue prop = propValue(evaluator, lookupContext, rowPropertiesStack);
+      if (prop != null && prop.hasString()) {
+        return test(prop);
+      }
+      return negated;
+    }
+
+    private boolean test(Prefab.ConfigValue prop) {
+      return ConfigRuleEvaluator.negate(patterns.matches(prop.getString()), negated);
+    }
+  }
+
+  static class IntRangeMatcher extends CriterionMatcher {
+
+    private final boolean hasIntRange;
+    private final long start;
+    private final long end;
+
+    IntRangeMatcher(Prefab.Criterion criterion) {
+      super(criterion);
+      this.hasIntRange = criterion.getValueToMatch().hasIntRange();
+      IntRangeWrapper intRange = IntRangeWrapper.of(
+        criterion.getValueToMatch().getIntRange()
+      );
+      this.start = intRange.getStart().orElse(Long.MIN_VALUE);
+      this.end = intRange.getEnd().orElse(Long.MAX_VALUE);
+    }
+
+    @Override
+    List<EvaluatedCriterion> evaluate(
+      ConfigRuleEvaluator evaluator,
+      LookupContext lookupContext,
+      EvaluationStack rowPropertiesStack
+    ) {
+      Prefab.ConfigValue prop = propValue(evaluator, lookupContext, rowPropertiesStack);
+      if (isInt(prop)) {
+        return List.of(new EvaluatedCriterion(criterion, inRange(prop)));
+      }
+      return List.of(new EvaluatedCriterion(criterion, Optional.ofNullable(prop), false));
+    }
+
+    @Override
+    boolean matches(
+      ConfigRuleEvaluator evaluator,
+      LookupContext lookupContext,
+      EvaluationStack rowPropertiesStack
+    ) {
+      Prefab.ConfigValue prop = propValue(evaluator, lookupContext, rowPropertiesStack);
+      return isInt(prop) && inRange(prop);
+    }
+
+    private boolean isInt(@Nullable Prefab.ConfigValue prop) {
+      return hasIntRange && prop != null && prop.hasInt();
+    }
+
+    private boolean inRange(Prefab.ConfigValue prop) {
+      long value = prop.getInt();
+      return value >= start && value < end;
+    }
+  }
+
+  static class NumericComparisonMatcher extends CriterionMatcher {
+
+    private final IntPredicate comparisonPredicate;
+
+    @Nullable
+    private final Double numberToMatch;
+
+    NumericComparisonMatcher(
+      Prefab.Criterion criterion,
+      IntPredicate comparisonPredicate
+    ) {
+      super(criterion);
+      this.comparisonPredicate = comparisonPredicate;
+      this.numberToMatch =
+        getCriterionValueToMatch(criterion)
+          .flatMap(CriterionMatcher::getNumber)
+          .map(Number::doubleValue)
+          .orElse(null);
+    }
+
+    @Override
+    List<EvaluatedCriterion> evaluate(
+      ConfigRuleEvaluator evaluator,
+      LookupContext lookupContext,
+      EvaluationStack rowPropertiesStack
+    ) {
+      Prefab.ConfigValue valueFromContext = propValue(
+        evaluator,
+        lookupContext,
+        rowPropertiesStack
+      );
+      return List.of(
+        new EvaluatedCriterion(
+          criterion,
+          Optional.ofNullable(valueFromContext),
+          compare(valueFromContext)
+        )
+      );
+    }
+
+    @Override
+    boolean matches(
+      ConfigRuleEvaluator evaluator,
+      LookupContext lookupContext,
+      EvaluationStack rowPropertiesStack
+    ) {
+      return compare(propValue(evaluator, lookupContext, rowPropertiesStack));
+    }
+
+    private boolean compare(@Nullable Prefab.ConfigValue contextValue) {
+      if (numberToMatch == null || contextValue == null) {
+        return false;
+      }
+      if (contextValue.hasInt()) {
+        return comparisonPredicate.test(
+          Double.compare((double) contextValue.getInt(), numberToMatch)
+        );
+      }
+      if (contextValue.hasDouble()) {
+        return comparisonPredicate.test(
+          Double.compare(contextValue.getDouble(), numberToMatch)
+        );
+      }
+      return false;
+    }
+  }
+
+  static class DateComparisonMatcher extends CriterionMatcher {
+
+    private final boolean before;
+
+    // null if the operand couldn't be parsed
+    @Nullable
+    private final Instant dateToCompare;
+
+    DateComparisonMatcher(Prefab.Criterion criterion, boolean before) {
+      super(criterion);
+      this.before = before;
+      this.dateToCompare =
+        getCriterionValueToMatch(criterion)
+          .flatMap(ConfigValueUtils::asDate)
+          .orElse(null);
+      if (dateToCompare == null) {
+        LOG.debug("Criterion {} has no parseable date to compare against", criterion);
+      }
+    }
+
+    @Override
+    List<EvaluatedCriterion> evaluate(
+      ConfigRuleEvaluator evaluator,
+      LookupContext lookupContext,
+      EvaluationStack rowPropertiesStack
+    ) {
+      return List.of(
+        new EvaluatedCriterion(
+          criterion,
+          matches(evaluator, lookupContext, rowPropertiesStack)
+        )
+      );
+    }
+
+    @Override
+    boolean matches(
+      ConfigRuleEvaluator evaluator,
+      LookupContext lookupContext,
+      EvaluationStack rowPropertiesStack
+    ) {
+      if (dateToCompare == null) {
+        return false;
+      }
+      Prefab.ConfigValue prop = propValue(evaluator, lookupContext, rowPropertiesStack);
+      if (prop == null) {
+        return false;
+      }
+      Optional<Instant> dateFromContext = ConfigValueUtils.asDate(prop);
+      if (dateFromContext.isEmpty()) {
+        return false;
+      }
+      // Instant comparison keeps sub-millisecond precision from ISO dates
+      return before
+        ? dateFromContext.get().isBefore(dateToCompare)
+        : dateFromContext.get().isAfter(dateToCompare);
+    }
+  }
+
+  static class RegexMatcher extends CriterionMatcher {
+
+    private final boolean negated;
+
+    // null if the operand is missing or not a valid regex, in which case the criterion never matches
+    @Nullable
+    private final Pattern pattern;
+
+    RegexMatcher(Prefab.Criterion criterion, boolean negated) {
+      super(criterion);
+      this.negated = negated;
+      this.pattern =
+        getCriterionValueToMatch(criterion)
+          .flatMap(CriterionMatcher::getCompiledPattern)
+          .orElse(null);
+      if (pattern == null) {
+        LOG.debug("Criterion {} has no valid pattern to match", criterion);
+      }
+    }
+
+    @Override
+    List<EvaluatedCriterion> evaluate(
+      ConfigRuleEvaluator evaluator,
+      LookupContext lookupContext,
+      EvaluationStack rowPropertiesStack
+    ) {
+      return List.of(
+        new EvaluatedCriterion(
+          criterion,
+          matches(evaluator, lookupContext, rowPropertiesStack)
+        )
+      );
+    }
+
+    @Override
+    boolean matches(
+      ConfigRuleEvaluator evaluator,
+      LookupContext lookupContext,
+      EvaluationStack rowPropertiesStack
+    ) {
+      if (pattern == null) {
+        return false;
+      }
+      Prefab.ConfigValue valueFromContext = propValue(
+        evaluator,
+        lookupContext,
+        rowPropertiesStack
+      );
+      if (valueFromContext == null) {
+        return false;
+      }
+      boolean matches = pattern.matcher(valueFromContext.getString()).matches();
+      return ConfigRuleEvaluator.negate(matches, negated);
+    }
+  }
+
+  static class SemverComparisonMatcher extends CriterionMatcher {
+
+    private final IntPredicate comparisonPredicate;
+
+    // null if the operand is not a valid semantic version, in which case the criterion never matches
+    @Nullable
+    private final SemanticVersion semVerToMatch;
+
+    SemverComparisonMatcher(
+      Prefab.Criterion criterion,
+      IntPredicate comparisonPredicate
+    ) {
+      super(criterion);
+      this.comparisonPredicate = comparisonPredicate;
+      this.semVerToMatch =
+        getCriterionValueToMatch(criterion)
+          .flatMap(CriterionMatcher::getSemanticVersion)
+          .orElse(null);
+      if (semVerToMatch == null) {
+        LOG.debug("Criterion {} has no valid semantic version to compare", criterion);
+      }
+    }
+
+    @Override
+    List<EvaluatedCriterion> evaluate(
+      ConfigRuleEvaluator evaluator,
+      LookupContext lookupContext,
+      EvaluationStack rowPropertiesStack
+    ) {
+      Prefab.ConfigValue valueFromContext = propValue(
+        evaluator,
+        lookupContext,
+        rowPropertiesStack
+      );
+      return List.of(
+        new EvaluatedCriterion(
+          criterion,
+          Optional.ofNullable(valueFromContext),
+          compare(valueFromContext)
+        )
+      );
+    }
+
+    @Override
+    boolean matches(
+      ConfigRuleEvaluator evaluator,
+      LookupContext lookupContext,
+      EvaluationStack rowPropertiesStack
+    ) {
+      return compare(propValue(evaluator, lookupContext, rowPropertiesStack));
+    }
+
+    private boolean compare(@Nullable Prefab.ConfigValue contextValue) {
+      if (semVerToMatch == null || contextValue == null) {
+        return false;
+      }
+      SemanticVersion semVerFromContext = SemanticVersion.parseQuietly(
+        contextValue.getString()
+      );
+      return (
+        semVerFromContext != null &&
+        comparisonPredicate.test(semVerFromContext.compareTo(semVerToMatch))
+      );
+    }
+  }
+}
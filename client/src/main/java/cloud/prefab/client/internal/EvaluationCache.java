@@ -0,0 +1,220 @@
+package cloud.prefab.client.internal;
+
+import cloud.prefab.client.config.ConfigElement;
+import cloud.prefab.client.config.Match;
+import cloud.prefab.domain.Prefab;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import javax.annotation.Nullable;
+
+/**
+ * Caches value-only matches for one config snapshot. Each config is analysed once for the
+ * context properties its rows (and the segments they reference) read, and a match is cached
+ * under the values of just those properties, so every user on the same plan shares one entry
+ * for a flag that only looks at the plan.
+ * The cache belongs to MergedConfigData, so swapping in a new snapshot drops it as a whole.
+ * Its size is set by Options.setEvaluationCacheMaxSize; a size of 0 disables it.
+ * Configs whose outcome is not a function of the context alone are never cached: those reading
+ * the current time and those with values decrypted using another config. Neither are configs
+ * keyed per context, whose entries would never be shared and only cost a put on every miss:
+ * those with weighted values, which are hashed on a per-user property, and those reading the
+ * key of a context (eg user.key).
+ */
+final class EvaluationCache {
+
+  private final Map<String, ConfigElement> configs;
+  private final long projectEnvId;
+
+  private final ConcurrentHashMap<String, Dependencies> dependencies = new ConcurrentHashMap<>();
+  // null when the cache is disabled
+  @Nullable
+  private final Cache<CacheKey, Optional<Match>> matches;
+
+  EvaluationCache(Map<String, ConfigElement> configs, long projectEnvId, int maxSize) {
+    this.configs = configs;
+    this.projectEnvId = projectEnvId;
+    this.matches =
+      maxSize > 0 ? CacheBuilder.newBuilder().maximumSize(maxSize).build() : null;
+  }
+
+  Optional<Match> getValueMatch(
+    String key,
+    LookupContext lookupContext,
+    Supplier<Optional<Match>> evaluation
+  ) {
+    ConfigElement configElement = configs.get(key);
+    if (configElement == null || matches == null) {
+      return evaluation.get();
+    }
+    Dependencies configDependencies = dependencies.computeIfAbsent(
+      key,
+      ignored -> Dependencies.of(configElement, configs, projectEnvId)
+    );
+    CacheKey cacheKey = configDependencies.cacheKey(key, lookupContext);
+    if (cacheKey == null) {
+      return evaluation.get();
+    }
+    Optional<Match> cached = matches.getIfPresent(cacheKey);
+    if (cached != null) {
+      return cached;
+    }
+    Optional<Match> match = evaluation.get();
+    matches.put(cacheKey, match);
+    return match;
+  }
+
+  long size() {
+    return matches == null ? 0 : matches.size();
+  }
+
+  private static final class Dependencies {
+
+    private static final Dependencies UNCACHEABLE = new Dependencies(null);
+
+    // the suffix of the property holding a context's key, unique to each user
+    private static final String CONTEXT_KEY_SUFFIX = ".key";
+
+    // expanded property names whose values decide the outcome
+    @Nullable
+    private final String[] properties;
+
+    private Dependencies(@Nullable String[] properties) {
+      this.properties = properties;
+    }
+
+    @Nullable
+    CacheKey cacheKey(String key, LookupContext lookupContext) {
+      if (properties == null) {
+        return null;
+      }
+      Prefab.ConfigValue[] values = new Prefab.ConfigValue[properties.length];
+      for (int i = 0; i < properties.length; i++) {
+        values[i] = lookupContext.getExpandedValue(properties[i]);
+      }
+      return new CacheKey(key, values);
+    }
+
+    static Dependencies of(
+      ConfigElement configElement,
+      Map<String, ConfigElement> configs,
+      long projectEnvId
+    ) {
+      Set<String> properties = new LinkedHashSet<>();
+      boolean cacheable = collect(
+        configElement,
+        configs,
+        projectEnvId,
+        properties,
+        new HashSet<>()
+      );
+      if (!cacheable) {
+        return UNCACHEABLE;
+      }
+      return new Dependencies(properties.toArray(new String[0]));
+    }
+
+    private static boolean collect(
+      ConfigElement configElement,
+      Map<String, ConfigElement> configs,
+      long projectEnvId,
+      Set<String> properties,
+      Set<String> visiting
+    ) {
+      if (!visiting.add(configElement.getConfig().getKey())) {
+        // a segment cycle; evaluation will fail fast so don't cache it
+        return false;
+      }
+      for (CompiledConfig.CompiledRow row : configElement
+        .getCompiledConfig(projectEnvId)
+        .getRows()) {
+        for (CompiledConfig.CompiledConditionalValue value : row.getValues()) {
+          if (!isCacheableValue(value.getValue())) {
+            return false;
+          }
+          for (CriterionMatcher matcher : value.getMatchers()) {
+            Prefab.Criterion criterion = matcher.getCriterion();
+            switch (criterion.getOperator()) {
+              case NOT_SET:
+              case ALWAYS_TRUE:
+                break;
+              case IN_SEG:
+              case NOT_IN_SEG:
+                ConfigElement segment = configs.get(
+                  criterion.getValueToMatch().getString()
+                );
+                if (
+                  segment != null &&
+                  !collect(segment, configs, projectEnvId, properties, visiting)
+                ) {
+                  return false;
+                }
+                break;
+              default:
+                if (!collectProperty(criterion.getPropertyName(), properties)) {
+                  return false;
+                }
+            }
+          }
+        }
+      }
+      visiting.remove(configElement.getConfig().getKey());
+      return true;
+    }
+
+    private static boolean collectProperty(String propertyName, Set<String> properties) {
+      if (
+        ConfigRuleEvaluator.CURRENT_TIME_KEY.equals(propertyName) ||
+        ConfigRuleEvaluator.REFORGE_CURRENT_TIME_KEY.equals(propertyName) ||
+        propertyName.toLowerCase().endsWith(CONTEXT_KEY_SUFFIX)
+      ) {
+        return false;
+      }
+      // mirror ConfigRuleEvaluator.prop, which also tries the lower cased name
+      properties.add(propertyName);
+      properties.add(propertyName.toLowerCase());
+      return true;
+    }
+
+    private static boolean isCacheableValue(Prefab.ConfigValue value) {
+      return !value.hasDecryptWith() && !value.hasWeightedValues();
+    }
+  }
+
+  private static final class CacheKey {
+
+    private final String key;
+    private final Prefab.ConfigValue[] values;
+    private final int hashCode;
+
+    CacheKey(String key, Prefab.ConfigValue[] values) {
+      this.key = key;
+      this.values = values;
+      this.hashCode = 31 * key.hashCode() + Arrays.hashCode(values);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      CacheKey that = (CacheKey) o;
+      return key.equals(that.key) && Arrays.equals(values, that.values);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+  }
+}
@@ -0,0 +1,53 @@
+package cloud.prefab.client.internal;
+
+import cloud.prefab.domain.Prefab;
+import java.util.ArrayDeque;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * The row properties in scope during one evaluation, innermost first, along with the segment
+ * results of that evaluation. A new one is created for each top level evaluation, so it is
+ * only used by one thread; the segment outcomes it memoizes go to the shared results it was
+ * given, if any, and otherwise don't outlive the evaluation.
+ */
+final class EvaluationStack extends ArrayDeque<Map<String, Prefab.ConfigValue>> {
+
+  @Nullable
+  private final SegmentResults.Shared sharedSegmentResults;
+
+  @Nullable
+  private SegmentResults segmentResults;
+
+  EvaluationStack() {
+    this((SegmentResults.Shared) null);
+  }
+
+  EvaluationStack(@Nullable SegmentResults.Shared sharedSegmentResults) {
+    super(4);
+    this.sharedSegmentResults = sharedSegmentResults;
+  }
+
+  private EvaluationStack(SegmentResults segmentResults) {
+    this((SegmentResults.Shared) null);
+    this.segmentResults = segmentResults;
+  }
+
+  SegmentResults getSegmentResults() {
+    if (segmentResults == null) {
+      segmentResults = new SegmentResults(sharedSegmentResults);
+    }
+    return segmentResults;
+  }
+
+  /**
+   * @return an empty stack for a criterion that doesn't see row properties, sharing this
+   * evaluation's segment results
+   */
+  EvaluationStack withoutRowProperties() {
+    if (isEmpty()) {
+      return this;
+    }
+    return new EvaluationStack(getSegmentResults());
+  }
+}
@@ -1,6 +1,7 @@
 package cloud.prefab.client.internal;
 
-import cloud.prefab.context.PrefabContextSet;
+import cloud.prefab.context.FrozenPrefabContextSet;
+import cloud.prefab.context.PrefabContextSetReadable;
 import cloud.prefab.domain.Prefab;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
@@ -20,12 +21,13 @@ public class ExampleContextBuffer {
     this.contextDeduplicator = new ContextDeduplicator(Duration.ofMinutes(15), 1000);
   }
 
-  void recordContext(long timestamp, PrefabContextSet context) {
+  void recordContext(long timestamp, FrozenPrefabContextSet context) {
     if (context.isEmpty()) {
       return;
     }
-    String fingerPrint = context.getFingerPrint();
-    if (!fingerPrint.isBlank()) {
+    // cached on the context set, so repeat sightings of a context cost a cache probe
+    long fingerPrint = context.getFingerPrintHash();
+    if (fingerPrint != PrefabContextSetReadable.NO_FINGERPRINT) {
       if (!contextDeduplicator.recentlySeen(fingerPrint)) {
         LOG.debug(
           "have not seen context with fingerprint {} will add to recently seen contexts",
@@ -35,7 +37,7 @@ public class ExampleContextBuffer {
           Prefab.ExampleContext
             .newBuilder()
             .setTimestamp(timestamp)
-            .setContextSet(PrefabContextSet.convert(context).toProto())
+            .setContextSet(context.toProto())
             .build()
         );
       }
@@ -54,18 +56,18 @@ public class ExampleContextBuffer {
 
   static class ContextDeduplicator {
 
-    private final Cache<String, String> cache;
+    private final Cache<Long, Boolean> cache;
 
     ContextDeduplicator(Duration expiry, int maxSize) {
       this.cache =
         CacheBuilder.newBuilder().expireAfterWrite(expiry).maximumSize(maxSize).build();
     }
 
-    boolean recentlySeen(String fingerprint) {
+    boolean recentlySeen(long fingerprint) {
       if (cache.getIfPresent(fingerprint) != null) {
         return true;
       }
-      cache.put(fingerprint, fingerprint);
+      cache.put(fingerprint, Boolean.TRUE);
       return false;
     }
   }
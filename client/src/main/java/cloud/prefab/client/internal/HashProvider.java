@@ -19,5 +19,28 @@ public interface HashProvider {
     return value / (double) UNSIGNED_INT_MAX;
   }
 
+  /**
+   * Same as hash(prefix + suffix), streaming both parts into the hasher instead of
+   * building the concatenated string
+   */
+  default double hash(String prefix, String suffix) {
+    if (
+      !prefix.isEmpty() && Character.isHighSurrogate(prefix.charAt(prefix.length() - 1))
+    ) {
+      // a surrogate pair split across the parts only encodes correctly when joined
+      return hash(prefix + suffix);
+    }
+    long value = UnsignedInts.toLong(
+      Hashing
+        .murmur3_32_fixed()
+        .newHasher()
+        .putString(prefix, StandardCharsets.UTF_8)
+        .putString(suffix, StandardCharsets.UTF_8)
+        .hash()
+        .asInt()
+    );
+    return value / (double) UNSIGNED_INT_MAX;
+  }
+
   HashProvider DEFAULT = new HashProvider() {};
 }
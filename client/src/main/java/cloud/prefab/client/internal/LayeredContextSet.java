@@ -0,0 +1,136 @@
+package cloud.prefab.client.internal;
+
+import cloud.prefab.context.FrozenPrefabContextSet;
+import cloud.prefab.context.PrefabContext;
+import cloud.prefab.context.PrefabContextSetReadable;
+import com.google.common.collect.Iterables;
+import java.util.Arrays;
+import java.util.Optional;
+import javax.annotation.Nullable;
+
+/**
+ * Read-only view over context sets where a context in a later layer replaces the one with the
+ * same name in an earlier layer. The layers are not copied, so they must be immutable (see
+ * ContextMerger). Contexts and their properties are looked up by probing the layers from the
+ * top down; the merged set is only built if something iterates the contexts, such as telemetry.
+ */
+final class LayeredContextSet implements PrefabContextSetReadable {
+
+  // lowest precedence first
+  private final PrefabContextSetReadable[] layers;
+
+  private volatile FrozenPrefabContextSet merged = null;
+
+  LayeredContextSet(PrefabContextSetReadable... layers) {
+    this.layers = layers;
+  }
+
+  @Override
+  public Optional<PrefabContext> getByName(String contextName) {
+    for (int i = layers.length - 1; i >= 0; i--) {
+      Optional<PrefabContext> context = getByName(layers[i], contextName);
+      if (context.isPresent()) {
+        return context;
+      }
+    }
+    return Optional.empty();
+  }
+
+  /**
+   * @return the context that provides the given qualified property (e.g. user.email), ignoring
+   * contexts replaced by one of the same name in a later layer
+   */
+  @Nullable
+  PrefabContext findContextWith(String qualifiedName) {
+    for (int i = layers.length - 1; i >= 0; i--) {
+      PrefabContext context = findContextWith(layers[i], qualifiedName);
+      if (context != null && !isReplacedAbove(i, context.getName())) {
+        return context;
+      }
+    }
+    return null;
+  }
+
+  private boolean isReplacedAbove(int layer, String contextName) {
+    for (int i = layer + 1; i < layers.length; i++) {
+      if (getByName(layers[i], contextName).isPresent()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Nullable
+  private static PrefabContext findContextWith(
+    PrefabContextSetReadable layer,
+    String qualifiedName
+  ) {
+    if (layer instanceof LayeredContextSet) {
+      return ((LayeredContextSet) layer).findContextWith(qualifiedName);
+    }
+    if (layer instanceof PrefabContext) {
+      PrefabContext context = (PrefabContext) layer;
+      return context.getQualifiedProperties().containsKey(qualifiedName) ? context : null;
+    }
+    for (PrefabContext context : layer.getContexts()) {
+      if (context.getQualifiedProperties().containsKey(qualifiedName)) {
+        return context;
+      }
+    }
+    return null;
+  }
+
+  private static Optional<PrefabContext> getByName(
+    PrefabContextSetReadable layer,
+    String contextName
+  ) {
+    // a plain PrefabContext matches names case-sensitively, unlike the other layers
+    if (layer instanceof PrefabContext) {
+      PrefabContext context = (PrefabContext) layer;
+      return context.getName().equalsIgnoreCase(contextName)
+        ? Optional.of(context)
+        : Optional.empty();
+    }
+    return layer.getByName(contextName);
+  }
+
+  @Override
+  public Iterable<PrefabContext> getContexts() {
+    return freeze().getContexts();
+  }
+
+  FrozenPrefabContextSet freeze() {
+    FrozenPrefabContextSet frozen = merged;
+    if (frozen == null) {
+      frozen =
+        FrozenPrefabContextSet.of(
+          Iterables.concat(
+            Iterables.transform(
+              Arrays.asList(layers),
+              PrefabContextSetReadable::getContexts
+            )
+          )
+        );
+      merged = frozen;
+    }
+    return frozen;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    for (PrefabContextSetReadable layer : layers) {
+      if (!layer.isEmpty()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public String toString() {
+    return com.google.common.base.MoreObjects
+      .toStringHelper(this)
+      .add("layers", Arrays.asList(layers))
+      .toString();
+  }
+}
@@ -2,101 +2,146 @@ package cloud.prefab.client.internal;
 
 import cloud.prefab.domain.Prefab;
 import com.google.common.annotations.VisibleForTesting;
-import com.google.common.util.concurrent.MoreExecutors;
-import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.time.Clock;
-import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
-import java.util.List;
 import java.util.Map;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledThreadPoolExecutor;
-import java.util.concurrent.ThreadFactory;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
-import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicReference;
-import java.util.concurrent.atomic.LongAccumulator;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Consumer;
-import java.util.stream.Collectors;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 /**
  * Accepts reports of logger usage by name, level and count and rolls them up for a time window.
  * Flow is as follows
- * 1) reportLoggerUsage is called, constructs a Logger instance and offers it to the queue for a limited time (10ms) to keep logging fast
- * 2) An aggregator thread drains the queue and merges all the Logger instances
- * 3) Merged logger instances (now one per logger name) are merged into the map in the current instance of LogCounts
- * 4) When getAndResetStats is called, the current LogCounts instance is returned, and a new one replaces it with a new starting time set
- * LogCounts contains a mutex so that if the instance is swapped while the aggregator thread is updating it, the caller of getAndResetStats will be blocked
- * on reading it until the update is complete
+ * 1) reportLoggerUsage is called on the logging thread and adds the count to a striped counter
+ * (LongAdder) for the logger name and level, found with one ConcurrentHashMap lookup; no
+ * protobuf is built and no lock is taken
+ * 2) When getAndResetStats is called, the counters are read and reset into a new LogCounts, which
+ * is when the Prefab.Logger messages are built, and a new time window starts
+ * Loggers without counts in a window are left out of its LogCounts, and a logger that
+ * stays without counts for a whole window is dropped, so the map only holds loggers in
+ * recent use.
  */
 class LoggerStatsAggregator {
 
-  private static final Logger LOG = LoggerFactory.getLogger(LoggerStatsAggregator.class);
-
-  private final AtomicBoolean running = new AtomicBoolean(false);
+  // the order of the counters in a logger's array
+  private static final Prefab.LogLevel[] LEVELS = {
+    Prefab.LogLevel.TRACE,
+    Prefab.LogLevel.DEBUG,
+    Prefab.LogLevel.INFO,
+    Prefab.LogLevel.WARN,
+    Prefab.LogLevel.ERROR,
+    Prefab.LogLevel.FATAL,
+  };
 
   private final Clock clock;
 
-  private final AtomicReference<LogCounts> currentLogCollection = new AtomicReference<>();
-
-  private static final int DRAIN_SIZE = 25_000;
-  private static final int QUEUE_SIZE = 1_000_000_000;
-  private final List<Prefab.Logger> drain = new ArrayList<>(DRAIN_SIZE); // don't allocate a new one every run
-
-  private final LinkedBlockingQueue<Prefab.Logger> loggerCountQueue = new LinkedBlockingQueue<>(
-    QUEUE_SIZE
-  );
-
-  private final LongAccumulator dropCounts = new LongAccumulator(Long::sum, 0);
+  private final ConcurrentHashMap<String, LoggerCounts> countsByLogger = new ConcurrentHashMap<>();
+  private final AtomicLong periodStartTime = new AtomicLong();
 
   LoggerStatsAggregator(Clock clock) {
     this.clock = clock;
-    currentLogCollection.set(new LogCounts(clock.millis()));
+    periodStartTime.set(clock.millis());
   }
 
   LogCounts getAndResetStats() {
-    return currentLogCollection.getAndSet(new LogCounts(clock.millis()));
+    LogCounts logCounts = new LogCounts(periodStartTime.getAndSet(clock.millis()));
+    Iterator<LoggerCounts> loggers = countsByLogger.values().iterator();
+    while (loggers.hasNext()) {
+      LoggerCounts loggerCounts = loggers.next();
+      long[] levelCounts = new long[LEVELS.length];
+      boolean used = false;
+      for (int i = 0; i < LEVELS.length; i++) {
+        levelCounts[i] = loggerCounts.counts[i].sumThenReset();
+        used |= levelCounts[i] != 0;
+      }
+      if (used) {
+        logCounts.put(toLogger(loggerCounts.loggerName, levelCounts));
+        loggerCounts.idle = false;
+      } else if (loggerCounts.idle) {
+        loggerCounts.dropped = true;
+        loggers.remove();
+      } else {
+        loggerCounts.idle = true;
+      }
+    }
+    return logCounts;
   }
 
+  /**
+   * Hands back counts taken with getAndResetStats so they are reported with the next window,
+   * which then starts when they did
+   */
   void setStats(LogCounts logCounts) {
-    currentLogCollection.set(logCounts);
+    periodStartTime.set(logCounts.getStartTime());
+    for (Prefab.Logger logger : logCounts.getLoggerMap().values()) {
+      LongAdder[] counts = counts(logger.getLoggerName()).counts;
+      counts[0].add(logger.getTraces());
+      counts[1].add(logger.getDebugs());
+      counts[2].add(logger.getInfos());
+      counts[3].add(logger.getWarns());
+      counts[4].add(logger.getErrors());
+      counts[5].add(logger.getFatals());
+    }
   }
 
   void reportLoggerUsage(String loggerName, Prefab.LogLevel logLevel, long count) {
-    Prefab.Logger.Builder loggerBuilder = Prefab.Logger
-      .newBuilder()
-      .setLoggerName(loggerName);
+    int levelIndex = levelIndex(logLevel);
+    if (levelIndex >= 0) {
+      LoggerCounts loggerCounts = counts(loggerName);
+      loggerCounts.counts[levelIndex].add(count);
+      if (loggerCounts.dropped) {
+        // dropped by a flush that found it empty, so count under the logger's new entry
+        counts(loggerName).counts[levelIndex].add(count);
+      }
+    }
+  }
+
+  private LoggerCounts counts(String loggerName) {
+    LoggerCounts counts = countsByLogger.get(loggerName);
+    if (counts == null) {
+      counts = countsByLogger.computeIfAbsent(loggerName, LoggerCounts::new);
+    }
+    return counts;
+  }
+
+  @VisibleForTesting
+  int getLoggerCount() {
+    return countsByLogger.size();
+  }
+
+  private static int levelIndex(Prefab.LogLevel logLevel) {
     switch (logLevel) {
       case TRACE:
-        loggerBuilder.setTraces(count);
-        break;
+        return 0;
       case DEBUG:
-        loggerBuilder.setDebugs(count);
-        break;
+        return 1;
       case INFO:
-        loggerBuilder.setInfos(count);
-        break;
+        return 2;
       case WARN:
-        loggerBuilder.setWarns(count);
-        break;
+        return 3;
       case ERROR:
-        loggerBuilder.setErrors(count);
-        break;
+        return 4;
       case FATAL:
-        loggerBuilder.setFatals(count);
-        break;
+        return 5;
+      default:
+        return -1;
     }
-    currentLogCollection
-      .get()
-      .updateLoggerMap(Collections.singleton(loggerBuilder.build()));
+  }
+
+  private static Prefab.Logger toLogger(String loggerName, long[] levelCounts) {
+    Prefab.Logger.Builder loggerBuilder = Prefab.Logger
+      .newBuilder()
+      .setLoggerName(loggerName);
+    updateFieldIfNotZero(levelCounts[0], loggerBuilder::setTraces);
+    updateFieldIfNotZero(levelCounts[1], loggerBuilder::setDebugs);
+    updateFieldIfNotZero(levelCounts[2], loggerBuilder::setInfos);
+    updateFieldIfNotZero(levelCounts[3], loggerBuilder::setWarns);
+    updateFieldIfNotZero(levelCounts[4], loggerBuilder::setErrors);
+    updateFieldIfNotZero(levelCounts[5], loggerBuilder::setFatals);
+    return loggerBuilder.build();
   }
 
   static Prefab.Logger mergeLoggerCollection(Collection<Prefab.Logger> loggers) {
@@ -149,13 +194,34 @@ class LoggerStatsAggregator {
     return bldr.build();
   }
 
+  /**
+   * The counters for one logger, one per level in LEVELS order
+   */
+  private static final class LoggerCounts {
+
+    private final String loggerName;
+    private final LongAdder[] counts = new LongAdder[LEVELS.length];
+
+    // only touched while flushing
+    private boolean idle = false;
+    private volatile boolean dropped = false;
+
+    LoggerCounts(String loggerName) {
+      this.loggerName = loggerName;
+      for (int i = 0; i < counts.length; i++) {
+        counts[i] = new LongAdder();
+      }
+    }
+  }
+
+  /**
+   * The counts for one time window, built when the window is closed
+   */
   static class LogCounts {
 
     private final long startTime;
     private final Map<String, Prefab.Logger> loggerMap;
 
-    private final ReentrantLock mutex = new ReentrantLock();
-
     LogCounts(long startTime) {
       this.startTime = startTime;
       loggerMap = new HashMap<>();
@@ -166,27 +232,15 @@ class LoggerStatsAggregator {
     }
 
     Map<String, Prefab.Logger> getLoggerMap() {
-      try {
-        mutex.lock();
-        return loggerMap;
-      } finally {
-        mutex.unlock();
-      }
+      return loggerMap;
     }
 
-    void updateLoggerMap(Collection<Prefab.Logger> loggers) {
-      try {
-        mutex.lock();
-        for (Prefab.Logger logger : loggers) {
-          loggerMap.merge(
-            logger.getLoggerName(),
-            logger,
-            LoggerStatsAggregator::mergeLoggers
-          );
-        }
-      } finally {
-        mutex.unlock();
-      }
+    void put(Prefab.Logger logger) {
+      loggerMap.merge(
+        logger.getLoggerName(),
+        logger,
+        LoggerStatsAggregator::mergeLoggers
+      );
     }
   }
 }
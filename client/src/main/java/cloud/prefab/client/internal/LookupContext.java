@@ -2,27 +2,101 @@ package cloud.prefab.client.internal;
 
 import cloud.prefab.context.PrefabContext;
 import cloud.prefab.context.PrefabContextSet;
+import cloud.prefab.context.FrozenPrefabContextSet;
 import cloud.prefab.context.PrefabContextSetReadable;
 import cloud.prefab.domain.Prefab;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Iterables;
 import com.google.common.collect.Maps;
+import java.util.Arrays;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
-import java.util.stream.StreamSupport;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.annotation.Nullable;
 
 public class LookupContext {
 
+  // shared by every client, so it keeps no segment results
   public static final LookupContext EMPTY = new LookupContext(
-    PrefabContextSetReadable.EMPTY
+    PrefabContextSetReadable.EMPTY,
+    null
   );
 
-  private final PrefabContextSet prefabContextSet;
+  private final PrefabContextSetReadable prefabContextSetReadable;
+
+  private FrozenPrefabContextSet frozenContextSet = null;
+
+  private PrefabContext[] contexts = null;
 
   private Map<String, Prefab.ConfigValue> expandedProperties = null;
 
+  // segment outcomes for the current snapshot, shared with the copies from forNewLookup
+  @Nullable
+  private final AtomicReference<SegmentResults.Shared> sharedSegmentResults;
+
   public LookupContext(PrefabContextSetReadable prefabContextSetReadable) {
-    this.prefabContextSet = PrefabContextSet.convert(prefabContextSetReadable);
+    this(prefabContextSetReadable, new AtomicReference<>());
+  }
+
+  private LookupContext(
+    PrefabContextSetReadable prefabContextSetReadable,
+    @Nullable AtomicReference<SegmentResults.Shared> sharedSegmentResults
+  ) {
+    // kept as passed (often a layered view) so building a lookup copies nothing
+    this.prefabContextSetReadable = prefabContextSetReadable;
+    this.sharedSegmentResults = sharedSegmentResults;
+  }
+
+  private LookupContext(LookupContext source) {
+    this.prefabContextSetReadable = source.prefabContextSetReadable;
+    this.sharedSegmentResults = source.sharedSegmentResults;
+    this.frozenContextSet = source.frozenContextSet;
+    this.contexts = source.contexts;
+    this.expandedProperties = source.expandedProperties;
+  }
+
+  /**
+   * @return a lookup context over the same contexts, sharing what has been derived from them so
+   * far, so one resolved context can serve many lookups
+   */
+  LookupContext forNewLookup() {
+    return new LookupContext(this);
+  }
+
+  /**
+   * @return the segment outcomes of lookups made with this context against the given
+   * snapshot, replacing those of an earlier snapshot; null for LookupContext.EMPTY
+   */
+  @Nullable
+  SegmentResults.Shared getSharedSegmentResults(MergedConfigData data) {
+    if (sharedSegmentResults == null) {
+      return null;
+    }
+    SegmentResults.Shared current = sharedSegmentResults.get();
+    if (current != null && current.getData() == data) {
+      return current;
+    }
+    SegmentResults.Shared replacement = new SegmentResults.Shared(data);
+    if (sharedSegmentResults.compareAndSet(current, replacement)) {
+      return replacement;
+    }
+    // another lookup replaced it first; use theirs if it is for the same snapshot
+    current = sharedSegmentResults.get();
+    return current != null && current.getData() == data ? current : replacement;
+  }
+
+  /**
+   * Derives up front what forNewLookup shares, for an instance handed to other threads: the
+   * shared instance itself is then only read. A layered set is left as is, since its contexts
+   * are probed in place and only merged if telemetry asks for them.
+   */
+  LookupContext prepareForSharing() {
+    if (!(prefabContextSetReadable instanceof LayeredContextSet)) {
+      getContextArray();
+      getFrozenContextSet();
+    }
+    return this;
   }
 
   @Override
@@ -34,27 +108,80 @@ public class LookupContext {
       return false;
     }
     LookupContext that = (LookupContext) o;
-    return (Objects.equals(prefabContextSet, that.prefabContextSet));
+    return (Objects.equals(getFrozenContextSet(), that.getFrozenContextSet()));
   }
 
   @Override
   public int hashCode() {
-    return Objects.hash(prefabContextSet);
+    return Objects.hash(getFrozenContextSet());
   }
 
   public Optional<Prefab.ConfigValue> getValue(String name) {
-    return Optional.ofNullable(getExpandedProperties().get(name));
+    return Optional.ofNullable(getExpandedValue(name));
+  }
+
+  /**
+   * Looks a qualified property name (e.g. user.email) up in each context's precomputed table,
+   * which is cheaper than building the expanded property map for the few names a lookup reads
+   */
+  @Nullable
+  Prefab.ConfigValue getExpandedValue(String name) {
+    if (prefabContextSetReadable instanceof LayeredContextSet) {
+      PrefabContext context =
+        ((LayeredContextSet) prefabContextSetReadable).findContextWith(name);
+      return context == null ? null : context.getQualifiedProperties().get(name);
+    }
+    PrefabContext[] contexts = getContextArray();
+    // later contexts win, as they do in getExpandedProperties
+    for (int i = contexts.length - 1; i >= 0; i--) {
+      Prefab.ConfigValue value = contexts[i].getQualifiedProperties().get(name);
+      if (value != null) {
+        return value;
+      }
+    }
+    return null;
   }
 
+  private PrefabContext[] getContextArray() {
+    if (this.contexts == null) {
+      this.contexts =
+        Iterables.toArray(prefabContextSetReadable.getContexts(), PrefabContext.class);
+    }
+    return this.contexts;
+  }
+
+  public PrefabContextSetReadable getPrefabContextSetReadable() {
+    return prefabContextSetReadable;
+  }
+
+  /**
+   * @deprecated the contexts are no longer held as a mutable set, so this builds a copy; use
+   * {@link #getPrefabContextSetReadable()} or {@link #getFrozenContextSet()} instead
+   */
+  @Deprecated
   public PrefabContextSet getPrefabContextSet() {
-    return prefabContextSet;
+    return PrefabContextSet.convert(prefabContextSetReadable);
+  }
+
+  /**
+   * @return the contexts as an immutable set; only copied if they weren't frozen already
+   */
+  public FrozenPrefabContextSet getFrozenContextSet() {
+    if (this.frozenContextSet == null) {
+      if (prefabContextSetReadable instanceof LayeredContextSet) {
+        this.frozenContextSet = ((LayeredContextSet) prefabContextSetReadable).freeze();
+      } else {
+        this.frozenContextSet = FrozenPrefabContextSet.of(prefabContextSetReadable);
+      }
+    }
+    return this.frozenContextSet;
   }
 
   public Map<String, Prefab.ConfigValue> getExpandedProperties() {
     if (this.expandedProperties == null) {
       int propertyCount =
-        StreamSupport
-          .stream(prefabContextSet.getContexts().spliterator(), false)
+        Arrays
+          .stream(getContextArray())
           .mapToInt(context -> context.getProperties().size())
           .sum() +
         1;
@@ -62,16 +189,8 @@ public class LookupContext {
       Map<String, Prefab.ConfigValue> expandedProperties = Maps.newHashMapWithExpectedSize(
         propertyCount
       );
-      for (PrefabContext context : prefabContextSet.getContexts()) {
-        String prefix = context.getName().isBlank() ? "" : context.getName() + ".";
-        for (Map.Entry<String, Prefab.ConfigValue> stringConfigValueEntry : context
-          .getProperties()
-          .entrySet()) {
-          expandedProperties.put(
-            prefix + stringConfigValueEntry.getKey(),
-            stringConfigValueEntry.getValue()
-          );
-        }
+      for (PrefabContext context : getContextArray()) {
+        expandedProperties.putAll(context.getQualifiedProperties());
       }
       this.expandedProperties = ImmutableMap.copyOf(expandedProperties);
     }
@@ -4,33 +4,75 @@ import cloud.prefab.client.config.Match;
 import cloud.prefab.domain.Prefab;
 import com.google.common.base.MoreObjects;
 import com.google.common.collect.Sets;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.List;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
-
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import javax.annotation.Nullable;
+
+/**
+ * Counts evaluations on the thread doing them. Each distinct (config id, row, conditional
+ * value, weighted value, selected value) gets a CounterSlot with a striped LongAdder, so an
+ * evaluation counts with a single increment and no allocation once its slot exists. The
+ * counts are read into a StatsAggregate at flush time.
+ * A match's slot is found in its config's ConfigCounters (keyed by config key) by a
+ * long packing the indices, with the selected value given by its position among the values
+ * counted for the config, found by instance since matches carry the config's own values, so
+ * no ConfigValue is hashed; the CountKey is only built when a slot is created.
+ * The counters of a config are replaced when a match comes from another version of it (a
+ * different config id), and the old ones are collected at the next flush and dropped. Slots
+ * that count nothing for a whole flush period are dropped; an increment racing a drop may be
+ * lost.
+ */
 public class MatchStatsAggregator {
 
   private static final Set<Prefab.ConfigType> SUPPORTED_CONFIG_TYPES = Sets.immutableEnumSet(
     Prefab.ConfigType.CONFIG,
     Prefab.ConfigType.FEATURE_FLAG
   );
-  private StatsAggregate statsAggregate = new StatsAggregate();
 
-  void setStatsAggregate(StatsAggregate statsAggregate) {
-    this.statsAggregate = statsAggregate;
+  // keyed by config key, holding the counters for the version of the config counted last
+  private final ConcurrentHashMap<String, ConfigCounters> configCounters = new ConcurrentHashMap<>();
+
+  // counters replaced by another version of their config, dropped once collected
+  private final ConcurrentLinkedQueue<ConfigCounters> retiredCounters = new ConcurrentLinkedQueue<>();
+
+  // for the rare keys whose indices don't fit in a packed key
+  private final ConcurrentHashMap<CountKey, CounterSlot> unpackedSlots = new ConcurrentHashMap<>();
+  private final LongAccumulator minTime = new LongAccumulator(Math::min, Long.MAX_VALUE);
+  private final LongAccumulator maxTime = new LongAccumulator(Math::max, 0);
+
+  // counts from a flush that couldn't be uploaded, added to the next one
+  @Nullable
+  private StatsAggregate carriedOver;
+
+  /**
+   * Hands back an aggregate taken with getAndResetStatsAggregate so the next one includes it
+   */
+  synchronized void restoreStatsAggregate(StatsAggregate statsAggregate) {
+    if (carriedOver == null) {
+      carriedOver = statsAggregate;
+    } else {
+      carriedOver.merge(statsAggregate);
+    }
   }
 
-  StatsAggregate getStatsAggregate() {
-    return statsAggregate;
+  /**
+   * @return the counts so far, without resetting them
+   */
+  synchronized StatsAggregate getStatsAggregate() {
+    return snapshot(false);
   }
 
-  StatsAggregate getAndResetStatsAggregate() {
-    StatsAggregate currentStatsAggregate = statsAggregate;
-    statsAggregate = new StatsAggregate();
-    return currentStatsAggregate;
+  synchronized StatsAggregate getAndResetStatsAggregate() {
+    return snapshot(true);
   }
 
   void recordMatch(Match match, long timeStamp) {
@@ -39,72 +81,428 @@ public class MatchStatsAggregator {
         match.getConfigElement().getConfig().getConfigType()
       )
     ) {
-      statsAggregate.recordMatch(match, timeStamp);
+      minTime.accumulate(timeStamp);
+      maxTime.accumulate(timeStamp);
+      counterSlot(match).count.increment();
     }
   }
 
-  static class StatsAggregate {
+  private CounterSlot counterSlot(Match match) {
+    CounterSlot slot;
+    do {
+      Prefab.Config config = match.getConfigElement().getConfig();
+      ConfigCounters counters = configCounters.get(config.getKey());
+      if (counters == null || !counters.isFor(config)) {
+        counters =
+          configCounters.compute(
+            config.getKey(),
+            (key, current) -> {
+              if (current != null && current.isFor(config)) {
+                return current;
+              }
+              if (current != null) {
+                retiredCounters.add(current);
+              }
+              return new ConfigCounters(config.getId(), configKeyAndTypeKey(match));
+            }
+          );
+      }
+      slot = counters.slot(this, match);
+      // null if the counters were dropped by a flush since we got them
+    } while (slot == null);
+    return slot;
+  }
 
-    Map<ConfigKeyAndTypeKey, Map<CountKey, Counter>> counterData = new HashMap<>();
-    long minTime = 0;
-    long maxTime = 0;
+  private static ConfigKeyAndTypeKey configKeyAndTypeKey(Match match) {
+    return new ConfigKeyAndTypeKey(
+      match.getConfigElement().getConfig().getKey(),
+      match.getConfigElement().getConfig().getConfigType()
+    );
+  }
 
-    long getMinTime() {
-      return minTime;
+  private StatsAggregate snapshot(boolean reset) {
+    StatsAggregate statsAggregate = new StatsAggregate();
+    for (Map.Entry<String, ConfigCounters> entry : configCounters.entrySet()) {
+      if (entry.getValue().collect(statsAggregate, reset)) {
+        // unless a newer version replaced them meanwhile
+        configCounters.remove(entry.getKey(), entry.getValue());
+      }
+    }
+    Iterator<ConfigCounters> retired = retiredCounters.iterator();
+    while (retired.hasNext()) {
+      ConfigCounters counters = retired.next();
+      counters.collect(statsAggregate, reset);
+      if (reset) {
+        counters.drop();
+        retired.remove();
+      }
     }
+    Iterator<CounterSlot> slots = unpackedSlots.values().iterator();
+    while (slots.hasNext()) {
+      if (slots.next().collect(statsAggregate, reset)) {
+        slots.remove();
+      }
+    }
+    long min = reset ? minTime.getThenReset() : minTime.get();
+    long max = reset ? maxTime.getThenReset() : maxTime.get();
+    if (!statsAggregate.counterData.isEmpty()) {
+      // an evaluation racing the reset may have been counted here but timed in the next period
+      statsAggregate.minTime = min == Long.MAX_VALUE ? 0 : min;
+      statsAggregate.maxTime = max;
+    }
+    if (carriedOver != null) {
+      statsAggregate.merge(carriedOver);
+      if (reset) {
+        carriedOver = null;
+      }
+    }
+    return statsAggregate;
+  }
 
-    long getMaxTime() {
-      return maxTime;
+  /**
+   * The counter slots for one config. Slots are found by a packed key in an open addressing
+   * table that is replaced rather than modified, so lookups don't lock; adding a slot copies
+   * the table, which only happens the first time a row, value or selected value is counted.
+   */
+  private static final class ConfigCounters {
+
+    private static final int MAX_PACKED_INDEX = 0xFFFF;
+
+    private final long configId;
+    private final ConfigKeyAndTypeKey configKeyAndTypeKey;
+    private volatile SlotTable slotTable = SlotTable.EMPTY;
+
+    // the values counted so far, keyed by their position here
+    private volatile CountedValue[] values = new CountedValue[0];
+
+    // set once a flush removes these counters, guarded by this
+    private boolean dropped = false;
+
+    ConfigCounters(long configId, ConfigKeyAndTypeKey configKeyAndTypeKey) {
+      this.configId = configId;
+      this.configKeyAndTypeKey = configKeyAndTypeKey;
     }
 
-    Map<ConfigKeyAndTypeKey, Map<CountKey, Counter>> getCounterData() {
-      return counterData;
+    /**
+     * True if these counters were made for this version of the config; a reloaded copy of the
+     * same version has the same id, so it is matched without comparing the messages
+     */
+    boolean isFor(Prefab.Config config) {
+      return (
+        configId == config.getId() &&
+        configKeyAndTypeKey.configType == config.getConfigType()
+      );
+    }
+
+    /**
+     * Stops handing out slots, so matches counted from now on go to the counters that
+     * replaced these
+     */
+    synchronized void drop() {
+      dropped = true;
     }
 
-    void recordMatch(Match match, long timeStamp) {
-      if (minTime == 0 || timeStamp < minTime) {
-        minTime = timeStamp;
+    /**
+     * @return the match's slot, or null if these counters have been dropped
+     */
+    @Nullable
+    CounterSlot slot(MatchStatsAggregator owner, Match match) {
+      int valueIndex = valueIndex(match);
+      long packedKey = packedKey(match, valueIndex);
+      if (packedKey < 0) {
+        return owner.unpackedSlots.computeIfAbsent(
+          countKey(match, valueIndex),
+          countKey -> new CounterSlot(configKeyAndTypeKey, countKey)
+        );
       }
-      if (timeStamp > maxTime) {
-        maxTime = timeStamp;
+      CounterSlot slot = slotTable.get(packedKey);
+      if (slot != null) {
+        return slot;
       }
+      synchronized (this) {
+        if (dropped) {
+          return null;
+        }
+        slot = slotTable.get(packedKey);
+        if (slot == null) {
+          slot = new CounterSlot(configKeyAndTypeKey, countKey(match, valueIndex));
+          slotTable = slotTable.with(packedKey, slot);
+        }
+        return slot;
+      }
+    }
 
-      ConfigKeyAndTypeKey configKeyAndTypeKey = new ConfigKeyAndTypeKey(
-        match.getConfigElement().getConfig().getKey(),
-        match.getConfigElement().getConfig().getConfigType()
-      );
+    /**
+     * Adds the counts to the aggregate and drops slots idle for a whole period
+     * @return true if these counters are left empty and have been dropped
+     */
+    synchronized boolean collect(StatsAggregate statsAggregate, boolean reset) {
+      SlotTable table = slotTable;
+      boolean anyDropped = false;
+      for (CounterSlot slot : table.slots) {
+        if (slot != null) {
+          anyDropped |= slot.collect(statsAggregate, reset);
+        }
+      }
+      if (anyDropped) {
+        slotTable = table.withoutDropped();
+        dropped = slotTable.size == 0;
+      }
+      return dropped;
+    }
 
-      Map<CountKey, Counter> innerMap = counterData.computeIfAbsent(
-        configKeyAndTypeKey,
-        ignored -> new HashMap<>()
+    /**
+     * Packs row, conditional value, weighted value and selected value indices 16 bits each
+     * @return the key, or -1 if an index doesn't fit
+     */
+    private static long packedKey(Match match, int valueIndex) {
+      int rowIndex = match.getRowIndex();
+      int conditionalValueIndex = match.getConditionalValueIndex();
+      Optional<Integer> weighted = match.getWeightedValueIndex();
+      int weightedValueIndex = weighted.isPresent() ? weighted.get() + 1 : 0;
+      if (
+        !fits(rowIndex) ||
+        !fits(conditionalValueIndex) ||
+        !fits(weightedValueIndex) ||
+        !fits(valueIndex)
+      ) {
+        return -1;
+      }
+      return (
+        ((long) rowIndex << 48) |
+        ((long) conditionalValueIndex << 32) |
+        ((long) weightedValueIndex << 16) |
+        valueIndex
       );
+    }
+
+    private static boolean fits(int index) {
+      return index >= 0 && index <= MAX_PACKED_INDEX;
+    }
 
-      CountKey countKey = new CountKey(
+    private CountKey countKey(Match match, int valueIndex) {
+      return new CountKey(
         match.getConfigElement().getConfig().getId(),
         match.getConfigValue(),
-        indexOfMatch(
-          match.getConfigValue(),
-          match.getConfigElement().getConfig().getAllowableValuesList()
-        ),
+        values[valueIndex].selectedIndex,
         match.getRowIndex(),
         match.getConditionalValueIndex(),
         match.getWeightedValueIndex()
       );
-      innerMap.computeIfAbsent(countKey, c -> new Counter(0)).inc();
     }
 
-    private int indexOfMatch(
-      Prefab.ConfigValue configValue,
-      List<Prefab.ConfigValue> allowableValuesList
-    ) {
-      int selectedIndex = 0;
-      for (Prefab.ConfigValue value : allowableValuesList) {
-        if (value.equals(configValue)) {
-          return selectedIndex;
+    /**
+     * @return the position of the match's value in values, adding it if it is new
+     */
+    private int valueIndex(Match match) {
+      Prefab.ConfigValue configValue = match.getConfigValue();
+      CountedValue[] counted = values;
+      // matches usually carry the config's own value instance
+      for (int i = 0; i < counted.length; i++) {
+        if (counted[i].value == configValue) {
+          return i;
+        }
+      }
+      for (int i = 0; i < counted.length; i++) {
+        if (counted[i].value.equals(configValue)) {
+          return i;
+        }
+      }
+      synchronized (this) {
+        counted = values;
+        for (int i = 0; i < counted.length; i++) {
+          if (counted[i].value.equals(configValue)) {
+            return i;
+          }
         }
-        selectedIndex++;
+        int selectedIndex = match
+          .getConfigElement()
+          .getConfig()
+          .getAllowableValuesList()
+          .indexOf(configValue);
+        CountedValue[] updated = Arrays.copyOf(counted, counted.length + 1);
+        updated[counted.length] = new CountedValue(configValue, selectedIndex);
+        values = updated;
+        return counted.length;
       }
-      return -1;
+    }
+  }
+
+  /**
+   * A value counted for a config, with its index in the config's allowable values or -1
+   */
+  private static final class CountedValue {
+
+    private final Prefab.ConfigValue value;
+    private final int selectedIndex;
+
+    CountedValue(Prefab.ConfigValue value, int selectedIndex) {
+      this.value = value;
+      this.selectedIndex = selectedIndex;
+    }
+  }
+
+  /**
+   * An immutable open addressing table from packed keys to slots, at most half full
+   */
+  private static final class SlotTable {
+
+    private static final SlotTable EMPTY = new SlotTable(
+      new long[2],
+      new CounterSlot[2],
+      0
+    );
+
+    private final long[] keys;
+    private final CounterSlot[] slots;
+    private final int size;
+
+    private SlotTable(long[] keys, CounterSlot[] slots, int size) {
+      this.keys = keys;
+      this.slots = slots;
+      this.size = size;
+    }
+
+    @Nullable
+    CounterSlot get(long key) {
+      int mask = keys.length - 1;
+      for (int i = index(key, mask);; i = (i + 1) & mask) {
+        CounterSlot slot = slots[i];
+        if (slot == null || keys[i] == key) {
+          return slot;
+        }
+      }
+    }
+
+    SlotTable with(long key, CounterSlot slot) {
+      int capacity = keys.length;
+      while ((size + 1) * 2 > capacity) {
+        capacity *= 2;
+      }
+      SlotTable table = new SlotTable(
+        new long[capacity],
+        new CounterSlot[capacity],
+        size + 1
+      );
+      copyInto(table);
+      table.put(key, slot);
+      return table;
+    }
+
+    SlotTable withoutDropped() {
+      int remaining = 0;
+      for (CounterSlot slot : slots) {
+        if (slot != null && !slot.dropped) {
+          remaining++;
+        }
+      }
+      int capacity = 2;
+      while (remaining * 2 > capacity) {
+        capacity *= 2;
+      }
+      SlotTable table = new SlotTable(
+        new long[capacity],
+        new CounterSlot[capacity],
+        remaining
+      );
+      copyInto(table);
+      return table;
+    }
+
+    private void copyInto(SlotTable table) {
+      for (int i = 0; i < slots.length; i++) {
+        if (slots[i] != null && !slots[i].dropped) {
+          table.put(keys[i], slots[i]);
+        }
+      }
+    }
+
+    // only while building a new table
+    private void put(long key, CounterSlot slot) {
+      int mask = keys.length - 1;
+      int i = index(key, mask);
+      while (slots[i] != null) {
+        i = (i + 1) & mask;
+      }
+      keys[i] = key;
+      slots[i] = slot;
+    }
+
+    private static int index(long key, int mask) {
+      long mixed = key * 0x9E3779B97F4A7C15L;
+      return (int) (mixed ^ (mixed >>> 32)) & mask;
+    }
+  }
+
+  private static final class CounterSlot {
+
+    private final ConfigKeyAndTypeKey configKeyAndTypeKey;
+    private final CountKey countKey;
+    private final LongAdder count = new LongAdder();
+
+    // only touched while flushing
+    private boolean idle = false;
+    private volatile boolean dropped = false;
+
+    CounterSlot(ConfigKeyAndTypeKey configKeyAndTypeKey, CountKey countKey) {
+      this.configKeyAndTypeKey = configKeyAndTypeKey;
+      this.countKey = countKey;
+    }
+
+    /**
+     * @return true if the slot was idle for a whole period and is now dropped
+     */
+    boolean collect(StatsAggregate statsAggregate, boolean reset) {
+      long total = reset ? count.sumThenReset() : count.sum();
+      if (total > 0) {
+        statsAggregate.add(configKeyAndTypeKey, countKey, total);
+        idle = false;
+      } else if (reset) {
+        if (idle) {
+          dropped = true;
+          return true;
+        }
+        idle = true;
+      }
+      return false;
+    }
+  }
+
+  static class StatsAggregate {
+
+    Map<ConfigKeyAndTypeKey, Map<CountKey, Counter>> counterData = new HashMap<>();
+    long minTime = 0;
+    long maxTime = 0;
+
+    long getMinTime() {
+      return minTime;
+    }
+
+    long getMaxTime() {
+      return maxTime;
+    }
+
+    Map<ConfigKeyAndTypeKey, Map<CountKey, Counter>> getCounterData() {
+      return counterData;
+    }
+
+    void add(ConfigKeyAndTypeKey configKeyAndTypeKey, CountKey countKey, long count) {
+      counterData
+        .computeIfAbsent(configKeyAndTypeKey, ignored -> new HashMap<>())
+        .computeIfAbsent(countKey, ignored -> new Counter(0))
+        .add(count);
+    }
+
+    void merge(StatsAggregate other) {
+      for (Map.Entry<ConfigKeyAndTypeKey, Map<CountKey, Counter>> entry : other.counterData.entrySet()) {
+        for (Map.Entry<CountKey, Counter> counter : entry.getValue().entrySet()) {
+          add(entry.getKey(), counter.getKey(), counter.getValue().count);
+        }
+      }
+      if (other.minTime != 0 && (minTime == 0 || other.minTime < minTime)) {
+        minTime = other.minTime;
+      }
+      maxTime = Math.max(maxTime, other.maxTime);
     }
 
     Prefab.ConfigEvaluationSummaries toProto() {
@@ -257,6 +655,10 @@ public class MatchStatsAggregator {
       count += 1;
     }
 
+    void add(long count) {
+      this.count += count;
+    }
+
     Counter() {
       this(0);
     }
@@ -1,8 +1,13 @@
 package cloud.prefab.client.internal;
 
+import cloud.prefab.client.Options;
 import cloud.prefab.client.config.ConfigElement;
+import cloud.prefab.client.config.Match;
+import cloud.prefab.context.FrozenPrefabContextSet;
 import cloud.prefab.context.PrefabContextSetReadable;
+import com.google.common.collect.ImmutableMap;
 import java.util.Map;
+import javax.annotation.Nullable;
 
 public class MergedConfigData {
 
@@ -10,17 +15,65 @@ public class MergedConfigData {
   private final long envId;
   private final PrefabContextSetReadable globalContextSet;
   private final PrefabContextSetReadable configIncludedContextSet;
+  private final PrefabContextSetReadable baseContextSet;
+  private final LookupContext baseLookupContext;
+  private final Map<String, Match> constantMatches;
+  private final EvaluationCache evaluationCache;
 
   MergedConfigData(
     Map<String, ConfigElement> configs,
     long envId,
     PrefabContextSetReadable globalContextSet,
     PrefabContextSetReadable configIncludedContextSet
+  ) {
+    this(
+      configs,
+      envId,
+      globalContextSet,
+      configIncludedContextSet,
+      Options.DEFAULT_EVALUATION_CACHE_MAX_SIZE
+    );
+  }
+
+  MergedConfigData(
+    Map<String, ConfigElement> configs,
+    long envId,
+    PrefabContextSetReadable globalContextSet,
+    PrefabContextSetReadable configIncludedContextSet,
+    int evaluationCacheMaxSize
   ) {
     this.configs = configs;
     this.envId = envId;
     this.globalContextSet = globalContextSet;
     this.configIncludedContextSet = configIncludedContextSet;
+    this.baseContextSet =
+      FrozenPrefabContextSet.of(
+        ContextMerger.merge(globalContextSet, configIncludedContextSet)
+      );
+    this.baseLookupContext = new LookupContext(baseContextSet).prepareForSharing();
+    this.constantMatches = foldConstants(configs, envId);
+    this.evaluationCache = new EvaluationCache(configs, envId, evaluationCacheMaxSize);
+  }
+
+  /**
+   * Compiles every config for this snapshot's environment, keeping the ones whose match doesn't
+   * depend on the lookup so they can be served without evaluation
+   */
+  private static Map<String, Match> foldConstants(
+    Map<String, ConfigElement> configs,
+    long envId
+  ) {
+    ImmutableMap.Builder<String, Match> constants = ImmutableMap.builder();
+    for (Map.Entry<String, ConfigElement> entry : configs.entrySet()) {
+      Match constantMatch = entry
+        .getValue()
+        .getCompiledConfig(envId)
+        .constantMatch(entry.getValue());
+      if (constantMatch != null) {
+        constants.put(entry.getKey(), constantMatch);
+      }
+    }
+    return constants.build();
   }
 
   public Map<String, ConfigElement> getConfigs() {
@@ -38,4 +91,32 @@ public class MergedConfigData {
   public PrefabContextSetReadable getGlobalContextSet() {
     return globalContextSet;
   }
+
+  /**
+   * @return the global context overlaid with the config included (api default) context, merged
+   * once per snapshot as the bottom layer of every lookup's context
+   */
+  PrefabContextSetReadable getBaseContextSet() {
+    return baseContextSet;
+  }
+
+  /**
+   * @return the lookup context for a scope with no stored context, kept here rather than on
+   * the shared StoredContext.EMPTY so each client reuses its own; see forNewLookup
+   */
+  LookupContext getBaseLookupContext() {
+    return baseLookupContext;
+  }
+
+  /**
+   * @return the precomputed value-only match, or null if the key has to be evaluated
+   */
+  @Nullable
+  Match getConstantMatch(String key) {
+    return constantMatches.get(key);
+  }
+
+  EvaluationCache getEvaluationCache() {
+    return evaluationCache;
+  }
 }
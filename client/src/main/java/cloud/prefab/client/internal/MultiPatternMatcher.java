@@ -0,0 +1,204 @@
+package cloud.prefab.client.internal;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+
+/**
+ * Tests a string against a fixed set of patterns in a single pass over the string.
+ * Prefix and suffix sets are held in a trie (the suffix trie is built from the reversed patterns),
+ * substring sets in an Aho-Corasick automaton. Matching is done on chars, the same as
+ * String.startsWith, endsWith and contains.
+ */
+abstract class MultiPatternMatcher {
+
+  abstract boolean matches(String value);
+
+  static MultiPatternMatcher prefixes(Collection<String> patterns) {
+    return new PrefixMatcher(Node.trie(patterns, false));
+  }
+
+  static MultiPatternMatcher suffixes(Collection<String> patterns) {
+    return new SuffixMatcher(Node.trie(patterns, true));
+  }
+
+  static MultiPatternMatcher substrings(Collection<String> patterns) {
+    Node root = Node.trie(patterns, false);
+    Node.linkFailures(root);
+    return new SubstringMatcher(root);
+  }
+
+  private static class PrefixMatcher extends MultiPatternMatcher {
+
+    private final Node root;
+
+    PrefixMatcher(Node root) {
+      this.root = root;
+    }
+
+    @Override
+    boolean matches(String value) {
+      Node node = root;
+      if (node.terminal) {
+        return true;
+      }
+      for (int i = 0; i < value.length(); i++) {
+        node = node.child(value.charAt(i));
+        if (node == null) {
+          return false;
+        }
+        if (node.terminal) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+
+  private static class SuffixMatcher extends MultiPatternMatcher {
+
+    private final Node root;
+
+    SuffixMatcher(Node root) {
+      this.root = root;
+    }
+
+    @Override
+    boolean matches(String value) {
+      Node node = root;
+      if (node.terminal) {
+        return true;
+      }
+      for (int i = value.length() - 1; i >= 0; i--) {
+        node = node.child(value.charAt(i));
+        if (node == null) {
+          return false;
+        }
+        if (node.terminal) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+
+  private static class SubstringMatcher extends MultiPatternMatcher {
+
+    private final Node root;
+
+    SubstringMatcher(Node root) {
+      this.root = root;
+    }
+
+    @Override
+    boolean matches(String value) {
+      if (root.terminal) {
+        return true;
+      }
+      Node state = root;
+      for (int i = 0; i < value.length(); i++) {
+        char c = value.charAt(i);
+        Node next = state.child(c);
+        while (next == null && state != root) {
+          state = state.failure;
+          next = state.child(c);
+        }
+        state = next == null ? root : next;
+        if (state.terminal) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+
+  private static final class Node {
+
+    private static final char[] NO_KEYS = new char[0];
+    private static final Node[] NO_CHILDREN = new Node[0];
+
+    // children are kept sorted by key so lookups are a binary search with no boxing
+    private char[] keys = NO_KEYS;
+    private Node[] children = NO_CHILDREN;
+
+    // true if a pattern ends here, or (for the automaton) at any state reachable by failure links
+    private boolean terminal;
+    private Node failure;
+
+    Node child(char c) {
+      int index = Arrays.binarySearch(keys, c);
+      return index >= 0 ? children[index] : null;
+    }
+
+    private Node getOrAddChild(char c) {
+      int index = Arrays.binarySearch(keys, c);
+      if (index >= 0) {
+        return children[index];
+      }
+      int insertAt = -index - 1;
+      Node child = new Node();
+
+      char[] newKeys = new char[keys.length + 1];
+      System.arraycopy(keys, 0, newKeys, 0, insertAt);
+      System.arraycopy(keys, insertAt, newKeys, insertAt + 1, keys.length - insertAt);
+      newKeys[insertAt] = c;
+
+      Node[] newChildren = new Node[children.length + 1];
+      System.arraycopy(children, 0, newChildren, 0, insertAt);
+      System.arraycopy(
+        children,
+        insertAt,
+        newChildren,
+        insertAt + 1,
+        children.length - insertAt
+      );
+      newChildren[insertAt] = child;
+
+      keys = newKeys;
+      children = newChildren;
+      return child;
+    }
+
+    static Node trie(Collection<String> patterns, boolean reversed) {
+      Node root = new Node();
+      for (String pattern : patterns) {
+        Node node = root;
+        int length = pattern.length();
+        for (int i = 0; i < length; i++) {
+          node = node.getOrAddChild(pattern.charAt(reversed ? length - 1 - i : i));
+        }
+        node.terminal = true;
+      }
+      return root;
+    }
+
+    /**
+     * Breadth-first pass computing Aho-Corasick failure links
+     */
+    static void linkFailures(Node root) {
+      root.failure = root;
+      Deque<Node> queue = new ArrayDeque<>();
+      for (Node child : root.children) {
+        child.failure = root;
+        queue.add(child);
+      }
+      while (!queue.isEmpty()) {
+        Node node = queue.poll();
+        for (int i = 0; i < node.keys.length; i++) {
+          char c = node.keys[i];
+          Node child = node.children[i];
+          Node fallback = node.failure;
+          Node candidate = fallback.child(c);
+          while (candidate == null && fallback != root) {
+            fallback = fallback.failure;
+            candidate = fallback.child(c);
+          }
+          child.failure = candidate == null ? root : candidate;
+          child.terminal |= child.failure.terminal;
+          queue.add(child);
+        }
+      }
+    }
+  }
+}
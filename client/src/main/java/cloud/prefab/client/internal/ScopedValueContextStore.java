@@ -0,0 +1,73 @@
+package cloud.prefab.client.internal;
+
+import cloud.prefab.context.ContextStore;
+import cloud.prefab.context.PrefabContext;
+import cloud.prefab.context.PrefabContextHelper;
+import cloud.prefab.context.PrefabContextSetReadable;
+import cloud.prefab.context.ScopedContextStore;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+
+/**
+ * A ContextStore for servers running on virtual threads. On Java 25 and later the jar's
+ * multi-release copy of this class (src/main/java25) binds the context with a ScopedValue for the
+ * duration of runWithContext / callWithContext, which allocates nothing per thread and is
+ * inherited by StructuredTaskScope subtasks.
+ * This is the copy used on older runtimes, where it behaves exactly like the
+ * ThreadLocalContextStore it delegates to.
+ */
+public class ScopedValueContextStore
+  implements ScopedContextStore, StoredContextSource {
+
+  public static final ScopedValueContextStore INSTANCE = new ScopedValueContextStore();
+  private static final Optional<ContextStore> SCOPE = Optional.of(INSTANCE);
+
+  private final ContextStore fallback = ThreadLocalContextStore.INSTANCE;
+
+  private ScopedValueContextStore() {}
+
+  @Override
+  public void runWithContext(PrefabContextSetReadable prefabContext, Runnable runnable) {
+    new PrefabContextHelper(fallback).performWorkWithContext(prefabContext, runnable);
+  }
+
+  @Override
+  public <T> T callWithContext(
+    PrefabContextSetReadable prefabContext,
+    Callable<T> callable
+  ) throws Exception {
+    return new PrefabContextHelper(fallback).performWorkWithContext(prefabContext, callable);
+  }
+
+  @Override
+  public void addContext(PrefabContext prefabContext) {
+    fallback.addContext(prefabContext);
+  }
+
+  @Override
+  public Optional<PrefabContextSetReadable> setContext(
+    PrefabContextSetReadable prefabContextSetReadable
+  ) {
+    return fallback.setContext(prefabContextSetReadable);
+  }
+
+  @Override
+  public Optional<PrefabContextSetReadable> clearContext() {
+    return fallback.clearContext();
+  }
+
+  @Override
+  public Optional<PrefabContextSetReadable> getContext() {
+    return fallback.getContext();
+  }
+
+  @Override
+  public Optional<ContextStore> forCurrentScope() {
+    return SCOPE;
+  }
+
+  @Override
+  public StoredContext getStoredContext() {
+    return ThreadLocalContextStore.INSTANCE.getStoredContext();
+  }
+}
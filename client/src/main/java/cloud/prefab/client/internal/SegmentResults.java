@@ -0,0 +1,121 @@
+package cloud.prefab.client.internal;
+
+import cloud.prefab.client.config.ConfigElement;
+import cloud.prefab.client.config.Match;
+import cloud.prefab.client.exceptions.SegmentCycleException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import javax.annotation.Nullable;
+
+/**
+ * Segment outcomes as seen by one evaluation, see EvaluationStack. Flags tend to share a
+ * handful of segments, so the first evaluation of a segment is reused by every later IN_SEG /
+ * NOT_IN_SEG criterion. The outcomes are kept in the Shared results of the LookupContext for
+ * the current config snapshot when there are some, so they are reused across every key looked
+ * up with that context (eg by getAll); otherwise they only last for the evaluation.
+ * Segments reading the current time are never memoized, nor are the segments that reference
+ * them. The segments being evaluated are kept in a list so a cycle fails fast.
+ */
+final class SegmentResults {
+
+  private final Map<String, Result> results;
+  private final List<String> inProgress = new ArrayList<>(4);
+
+  // segments at this depth or shallower depend on the current time, -1 if none do
+  private int timeDependentDepth = -1;
+
+  SegmentResults(@Nullable Shared shared) {
+    this.results = shared == null ? new HashMap<>() : shared.results;
+  }
+
+  /**
+   * @param cacheable false when the outcome depends on more than the context (eg row properties)
+   * @param explain whether the caller needs the evaluated criteria; explained results can serve
+   *                either kind of caller, value-only results only value-only callers
+   */
+  Optional<Match> evaluate(
+    ConfigElement segment,
+    CompiledConfig compiledSegment,
+    boolean cacheable,
+    boolean explain,
+    Supplier<Optional<Match>> evaluation
+  ) {
+    String key = segment.getConfig().getKey();
+    Result result = results.get(key);
+    if (
+      cacheable &&
+      result != null &&
+      result.segment == segment &&
+      (result.explained || !explain)
+    ) {
+      return result.match;
+    }
+
+    if (inProgress.contains(key)) {
+      throw new SegmentCycleException(key);
+    }
+    int depth = inProgress.size();
+    inProgress.add(key);
+    try {
+      if (compiledSegment.readsCurrentTime()) {
+        timeDependentDepth = Math.max(timeDependentDepth, depth);
+      }
+      Optional<Match> match = evaluation.get();
+      if (cacheable && depth > timeDependentDepth) {
+        results.merge(
+          key,
+          new Result(segment, explain, match),
+          SegmentResults::preferExplained
+        );
+      }
+      return match;
+    } finally {
+      inProgress.remove(depth);
+      timeDependentDepth = Math.min(timeDependentDepth, depth - 1);
+    }
+  }
+
+  // an explained result serves both kinds of caller, so keep it over a value-only one
+  private static Result preferExplained(Result current, Result replacement) {
+    if (current.segment == replacement.segment && current.explained) {
+      return current;
+    }
+    return replacement;
+  }
+
+  /**
+   * The segment outcomes for one LookupContext and one config snapshot, shared by the
+   * evaluations (on any thread) made with that context while the snapshot is current
+   */
+  static final class Shared {
+
+    private final MergedConfigData data;
+    private final ConcurrentHashMap<String, Result> results = new ConcurrentHashMap<>();
+
+    Shared(MergedConfigData data) {
+      this.data = data;
+    }
+
+    MergedConfigData getData() {
+      return data;
+    }
+  }
+
+  private static final class Result {
+
+    private final ConfigElement segment;
+    private final boolean explained;
+    private final Optional<Match> match;
+
+    Result(ConfigElement segment, boolean explained, Optional<Match> match) {
+      this.segment = segment;
+      this.explained = explained;
+      this.match = match;
+    }
+  }
+}
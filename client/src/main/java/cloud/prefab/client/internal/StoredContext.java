@@ -0,0 +1,75 @@
+package cloud.prefab.client.internal;
+
+import cloud.prefab.context.FrozenPrefabContextSet;
+import cloud.prefab.context.PrefabContext;
+import cloud.prefab.context.PrefabContextSetReadable;
+import javax.annotation.Nullable;
+
+/**
+ * What a context store holds for one scope (a thread, a scoped binding, a request): an
+ * immutable context set, replaced by a new StoredContext whenever the context changes.
+ * The client keeps the LookupContext it resolved from the set here, so it is reused for as
+ * long as the store holds this StoredContext and goes away with it. EMPTY is shared by every
+ * client, so the client keeps nothing on it (see MergedConfigData.getBaseLookupContext).
+ */
+public final class StoredContext {
+
+  public static final StoredContext EMPTY = new StoredContext(
+    FrozenPrefabContextSet.EMPTY
+  );
+
+  private final FrozenPrefabContextSet contextSet;
+
+  // the last lookup context resolved from contextSet, see ConfigClientImpl.lookupContext
+  @Nullable
+  private volatile Resolved resolved;
+
+  private StoredContext(FrozenPrefabContextSet contextSet) {
+    this.contextSet = contextSet;
+  }
+
+  public static StoredContext of(PrefabContextSetReadable prefabContextSetReadable) {
+    FrozenPrefabContextSet contextSet = FrozenPrefabContextSet.of(
+      prefabContextSetReadable
+    );
+    if (contextSet.isEmpty()) {
+      return EMPTY;
+    }
+    return new StoredContext(contextSet);
+  }
+
+  /**
+   * @return a new StoredContext with the given context added, replacing any with the same name
+   */
+  public StoredContext with(PrefabContext prefabContext) {
+    return of(contextSet.with(prefabContext));
+  }
+
+  public FrozenPrefabContextSet getContextSet() {
+    return contextSet;
+  }
+
+  /**
+   * @return the lookup context resolved from this context for the given snapshot, or null
+   */
+  @Nullable
+  LookupContext getLookupContext(MergedConfigData data) {
+    Resolved current = resolved;
+    return current != null && current.data == data ? current.lookupContext : null;
+  }
+
+  void setLookupContext(MergedConfigData data, LookupContext lookupContext) {
+    resolved = new Resolved(data, lookupContext);
+  }
+
+  private static final class Resolved {
+
+    private final MergedConfigData data;
+    private final LookupContext lookupContext;
+
+    Resolved(MergedConfigData data, LookupContext lookupContext) {
+      this.data = data;
+      this.lookupContext = lookupContext;
+    }
+  }
+}
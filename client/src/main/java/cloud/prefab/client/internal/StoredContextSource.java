@@ -0,0 +1,12 @@
+package cloud.prefab.client.internal;
+
+/**
+ * Implemented by context stores that keep their context as a StoredContext, letting the client
+ * reuse the lookup context it resolved from it until the store replaces it
+ */
+public interface StoredContextSource {
+  /**
+   * @return what the store holds for the current scope, StoredContext.EMPTY if nothing
+   */
+  StoredContext getStoredContext();
+}
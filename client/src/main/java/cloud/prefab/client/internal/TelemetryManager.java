@@ -6,9 +6,7 @@ import cloud.prefab.domain.Prefab;
 import com.google.common.util.concurrent.MoreExecutors;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.time.Clock;
-import java.util.ArrayList;
 import java.util.Collection;
-import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
@@ -20,6 +18,7 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.locks.LockSupport;
 import javax.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -29,10 +28,11 @@ public class TelemetryManager implements AutoCloseable {
   private static final Logger LOG = LoggerFactory.getLogger(TelemetryManager.class);
 
   static final int OUTPUT_QUEUE_SIZE = 10;
-  static final int INPUT_QUEUE_SIZE = 1_000_000;
+  // the ring buffer's slots are allocated up front, 12 bytes each
+  static final int INPUT_QUEUE_SIZE = 1 << 18;
 
   private static final int DRAIN_SIZE = 25_000;
-  private final List<IncomingTelemetryEvent> drain = new ArrayList<>(DRAIN_SIZE); // don't allocate a new one every run
+  private static final long MAX_IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
   private final LongAccumulator droppedEventCount = new LongAccumulator(Long::sum, 0);
 
   /*
@@ -50,7 +50,8 @@ public class TelemetryManager implements AutoCloseable {
   private final LinkedBlockingQueue<OutputBuffer> outputQueue = new LinkedBlockingQueue<>(
     TelemetryManager.OUTPUT_QUEUE_SIZE
   );
-  private final LinkedBlockingQueue<IncomingTelemetryEvent> inputQueue = new LinkedBlockingQueue<>(
+  // events that don't fit are dropped and counted, see TelemetryRingBuffer
+  private final TelemetryRingBuffer<IncomingTelemetryEvent> inputQueue = new TelemetryRingBuffer<>(
     TelemetryManager.INPUT_QUEUE_SIZE
   );
   private final Clock clock;
@@ -131,52 +132,38 @@ public class TelemetryManager implements AutoCloseable {
       return;
     }
     long now = clock.millis();
-    if (!inputQueue.offer(new MatchEvent(now, configKey, match, lookupContext))) {
-      droppedEventCount.accumulate(1);
+    // summaries are counted on this thread, only contexts go through the event loop
+    if (
+      options.isCollectEvaluationSummaries() && !match.getConfigValue().getConfidential()
+    ) {
+      matchStatsAggregator.recordMatch(match, now);
     }
-  }
-
-  void reportLoggerUsage(String loggerName, Prefab.LogLevel logLevel, long count) {
     if (
-      !inputQueue.offer(new LoggingEvent(clock.millis(), loggerName, logLevel, count))
+      options.isCollectContextShapeEnabled() &&
+      !lookupContext.getPrefabContextSetReadable().isEmpty() &&
+      !inputQueue.offer(new MatchEvent(now, configKey, match, lookupContext))
     ) {
       droppedEventCount.accumulate(1);
     }
   }
 
-  private void handleLogEvent(IncomingTelemetryEvent incomingTelemetryEvent) {
-    LoggingEvent loggingEvent = (LoggingEvent) incomingTelemetryEvent;
+  void reportLoggerUsage(String loggerName, Prefab.LogLevel logLevel, long count) {
+    // counted on the logging thread, see LoggerStatsAggregator
     if (options.isCollectLoggerCounts()) {
-      loggerStatsAggregator.reportLoggerUsage(
-        loggingEvent.loggerName,
-        loggingEvent.logLevel,
-        loggingEvent.count
-      );
+      loggerStatsAggregator.reportLoggerUsage(loggerName, logLevel, count);
     }
   }
 
   private void handleMatchEvent(IncomingTelemetryEvent telemetryEvent) {
     MatchEvent matchEvent = (MatchEvent) telemetryEvent;
-    if (!matchEvent.lookupContext.getPrefabContextSet().isEmpty()) {
-      if (options.isCollectContextShapeEnabled()) {
-        contextShapeAggregator.reportContextUsage(
-          matchEvent.lookupContext.getPrefabContextSet()
-        );
-      }
-      if (options.isCollectExampleContextEnabled()) {
-        exampleContextBuffer.recordContext(
-          matchEvent.timestamp,
-          matchEvent.lookupContext.getPrefabContextSet()
-        );
-      }
-    }
-
-    if (
-      matchEvent.match != null &&
-      options.isCollectEvaluationSummaries() &&
-      !matchEvent.match.getConfigValue().getConfidential()
-    ) {
-      matchStatsAggregator.recordMatch(matchEvent.match, matchEvent.timestamp);
+    contextShapeAggregator.reportContextUsage(
+      matchEvent.lookupContext.getPrefabContextSetReadable()
+    );
+    if (options.isCollectExampleContextEnabled()) {
+      exampleContextBuffer.recordContext(
+        matchEvent.timestamp,
+        matchEvent.lookupContext.getFrozenContextSet()
+      );
     }
   }
 
@@ -208,7 +195,7 @@ public class TelemetryManager implements AutoCloseable {
     ) {
       recordingPeriodStartTime.set(previousReportingPeriodStart);
       // push states back to aggregators and try again
-      matchStatsAggregator.setStatsAggregate(matchStats);
+      matchStatsAggregator.restoreStatsAggregate(matchStats);
       droppedEventCount.accumulate(currentDroppedEventCount);
       recordingPeriodStartTime.set(previousReportingPeriodStart);
       exampleContextBuffer.setContexts(exampleContexts);
@@ -226,36 +213,45 @@ public class TelemetryManager implements AutoCloseable {
   }
 
   void eventLoop() {
+    Options.TelemetryWaitStrategy waitStrategy = options.getTelemetryWaitStrategy();
+    int idleRounds = 0;
     do {
-      try {
-        IncomingTelemetryEvent incomingTelemetryEvent = inputQueue.poll(
-          500,
-          TimeUnit.MILLISECONDS
-        );
-        if (incomingTelemetryEvent != null) {
-          drain.add(incomingTelemetryEvent);
-          inputQueue.drainTo(drain, DRAIN_SIZE - 1);
-          for (IncomingTelemetryEvent telemetryEvent : drain) {
-            switch (telemetryEvent.eventType) {
-              case LOG:
-                handleLogEvent(telemetryEvent);
-                break;
-              case MATCH:
-                handleMatchEvent(telemetryEvent);
-                break;
-              case FLUSH:
-                handleFlush(telemetryEvent);
-                break;
-            }
-          }
-          drain.clear();
-        }
-      } catch (InterruptedException e) {
-        Thread.currentThread().interrupt();
+      if (inputQueue.drain(this::handleEvent, DRAIN_SIZE) > 0) {
+        idleRounds = 0;
+      } else {
+        idle(waitStrategy, idleRounds++);
       }
     } while (running.get());
   }
 
+  private void handleEvent(IncomingTelemetryEvent telemetryEvent) {
+    switch (telemetryEvent.eventType) {
+      case MATCH:
+        handleMatchEvent(telemetryEvent);
+        break;
+      case FLUSH:
+        handleFlush(telemetryEvent);
+        break;
+    }
+  }
+
+  private static void idle(Options.TelemetryWaitStrategy waitStrategy, int idleRounds) {
+    switch (waitStrategy) {
+      case BUSY_SPIN:
+        Thread.onSpinWait();
+        break;
+      case YIELDING:
+        Thread.yield();
+        break;
+      case SLEEPING:
+      default:
+        // 1 microsecond, doubling each round
+        LockSupport.parkNanos(
+          Math.min(MAX_IDLE_PARK_NANOS, 1_000L << Math.min(idleRounds, 20))
+        );
+    }
+  }
+
   @Override
   public void close() throws Exception {
     running.set(false);
@@ -366,7 +362,6 @@ public class TelemetryManager implements AutoCloseable {
 
     enum EventType {
       MATCH,
-      LOG,
       FLUSH,
     }
 
@@ -401,27 +396,6 @@ public class TelemetryManager implements AutoCloseable {
     }
   }
 
-  static class LoggingEvent extends IncomingTelemetryEvent {
-
-    private final String loggerName;
-    private final Prefab.LogLevel logLevel;
-    private final long count;
-    Match match;
-    LookupContext lookupContext;
-
-    LoggingEvent(
-      long timestamp,
-      String loggerName,
-      Prefab.LogLevel logLevel,
-      long count
-    ) {
-      super(EventType.LOG, timestamp);
-      this.loggerName = loggerName;
-      this.logLevel = logLevel;
-      this.count = count;
-    }
-  }
-
   static class FlushEvent extends IncomingTelemetryEvent {
 
     private final CompletableFuture<Boolean> future;
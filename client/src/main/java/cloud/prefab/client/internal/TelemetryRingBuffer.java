@@ -0,0 +1,94 @@
+package cloud.prefab.client.internal;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * A bounded, lock-free queue for many producers and one consumer, used to hand telemetry
+ * events from request threads to the TelemetryManager event loop.
+ * The slots are allocated up front. Each slot carries a sequence number saying whether it is
+ * free for the producer claiming a given position or holds an event for the consumer. A
+ * producer claims a position with one compare-and-set on the tail and publishes its event by
+ * advancing the slot's sequence, so producers only contend on the tail and never block.
+ * Drop policy: when every slot is taken, offer returns false and the event is dropped; events
+ * already queued are never overwritten. Callers count the drops (reported as the client's
+ * dropped event count).
+ * Only one thread may call drain.
+ */
+final class TelemetryRingBuffer<E> {
+
+  private final int mask;
+  private final AtomicReferenceArray<E> elements;
+  private final AtomicLongArray sequences;
+  private final AtomicLong tail = new AtomicLong();
+
+  // only read and written by the consumer
+  private long head = 0;
+
+  /**
+   * @param capacity rounded up to the next power of two
+   */
+  TelemetryRingBuffer(int capacity) {
+    if (capacity < 1 || capacity > 1 << 30) {
+      throw new IllegalArgumentException("capacity must be between 1 and 2^30");
+    }
+    int size = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+    this.mask = size - 1;
+    this.elements = new AtomicReferenceArray<>(size);
+    this.sequences = new AtomicLongArray(size);
+    for (int i = 0; i < size; i++) {
+      sequences.set(i, i);
+    }
+  }
+
+  int capacity() {
+    return mask + 1;
+  }
+
+  /**
+   * @return false, dropping the event, when the buffer is full
+   */
+  boolean offer(E element) {
+    while (true) {
+      long position = tail.get();
+      int index = (int) position & mask;
+      long available = sequences.get(index) - position;
+      if (available == 0) {
+        if (tail.compareAndSet(position, position + 1)) {
+          elements.lazySet(index, element);
+          // publishes the element to the consumer
+          sequences.lazySet(index, position + 1);
+          return true;
+        }
+      } else if (available < 0) {
+        // the consumer hasn't freed this slot from the previous lap
+        return false;
+      }
+      // otherwise another producer claimed the position first, try the next one
+    }
+  }
+
+  /**
+   * Hands up to limit queued events, oldest first, to the consumer, freeing their slots
+   * @return the number of events handed over
+   */
+  int drain(Consumer<E> consumer, int limit) {
+    int drained = 0;
+    while (drained < limit) {
+      int index = (int) head & mask;
+      if (sequences.get(index) != head + 1) {
+        // empty, or the producer at this position hasn't published yet
+        break;
+      }
+      E element = elements.get(index);
+      elements.lazySet(index, null);
+      sequences.lazySet(index, head + mask + 1);
+      head++;
+      drained++;
+      consumer.accept(element);
+    }
+    return drained;
+  }
+}
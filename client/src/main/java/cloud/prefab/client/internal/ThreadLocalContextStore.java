@@ -2,48 +2,55 @@ package cloud.prefab.client.internal;
 
 import cloud.prefab.context.ContextStore;
 import cloud.prefab.context.PrefabContext;
-import cloud.prefab.context.PrefabContextSet;
 import cloud.prefab.context.PrefabContextSetReadable;
 import java.util.Optional;
 
-public class ThreadLocalContextStore implements ContextStore {
+public class ThreadLocalContextStore implements ContextStore, StoredContextSource {
 
-  static final ThreadLocal<PrefabContextSet> PREFAB_CONTEXT_SET_THREAD_LOCAL = ThreadLocal.withInitial(
-    PrefabContextSet::new
+  // stored contexts are replaced rather than modified, so they can be handed out without a view
+  static final ThreadLocal<StoredContext> PREFAB_CONTEXT_SET_THREAD_LOCAL = ThreadLocal.withInitial(
+    () -> StoredContext.EMPTY
   );
   public static final ThreadLocalContextStore INSTANCE = new ThreadLocalContextStore();
+  private static final Optional<ContextStore> SCOPE = Optional.of(INSTANCE);
 
   private ThreadLocalContextStore() {}
 
   @Override
   public void addContext(PrefabContext prefabContext) {
-    PREFAB_CONTEXT_SET_THREAD_LOCAL.get().addContext(prefabContext);
+    PREFAB_CONTEXT_SET_THREAD_LOCAL.set(
+      PREFAB_CONTEXT_SET_THREAD_LOCAL.get().with(prefabContext)
+    );
   }
 
   @Override
   public Optional<PrefabContextSetReadable> setContext(
     PrefabContextSetReadable prefabContextSetReadable
   ) {
-    Optional<PrefabContextSet> previousContext = getStoredContextSet();
-    PREFAB_CONTEXT_SET_THREAD_LOCAL.set(
-      PrefabContextSet.convert(prefabContextSetReadable)
-    );
-    return previousContext.map(PrefabContextSetReadable::readOnlyContextSetView);
+    Optional<PrefabContextSetReadable> previousContext = getContext();
+    PREFAB_CONTEXT_SET_THREAD_LOCAL.set(StoredContext.of(prefabContextSetReadable));
+    return previousContext;
   }
 
   @Override
   public Optional<PrefabContextSetReadable> clearContext() {
-    Optional<PrefabContextSet> previousContext = getStoredContextSet();
+    Optional<PrefabContextSetReadable> previousContext = getContext();
     PREFAB_CONTEXT_SET_THREAD_LOCAL.remove();
-    return previousContext.map(PrefabContextSetReadable::readOnlyContextSetView);
+    return previousContext;
   }
 
   @Override
   public Optional<PrefabContextSetReadable> getContext() {
-    return getStoredContextSet().map(PrefabContextSetReadable::readOnlyContextSetView);
+    return Optional.of(PREFAB_CONTEXT_SET_THREAD_LOCAL.get().getContextSet());
   }
 
-  private Optional<PrefabContextSet> getStoredContextSet() {
-    return Optional.ofNullable(PREFAB_CONTEXT_SET_THREAD_LOCAL.get());
+  @Override
+  public Optional<ContextStore> forCurrentScope() {
+    return SCOPE;
+  }
+
+  @Override
+  public StoredContext getStoredContext() {
+    return PREFAB_CONTEXT_SET_THREAD_LOCAL.get();
   }
 }
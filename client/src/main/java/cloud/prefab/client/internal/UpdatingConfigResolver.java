@@ -197,7 +197,7 @@ public class UpdatingConfigResolver {
     String key,
     LookupContext lookupContext
   ) {
-    return configResolver.getConfigValue(key, lookupContext);
+    return getValueMatch(key, lookupContext).map(Match::getConfigValue);
   }
 
   public Optional<Prefab.ConfigValue> getConfigValue(String key) {
@@ -212,6 +212,22 @@ public class UpdatingConfigResolver {
     return configResolver.getMatch(key, lookupContext);
   }
 
+  public Optional<Match> getValueMatch(String key, LookupContext lookupContext) {
+    // read the snapshot before evaluating so a result is never stored in a newer snapshot's cache
+    MergedConfigData data = configStore.getData();
+    Match constantMatch = data.getConstantMatch(key);
+    if (constantMatch != null) {
+      return Optional.of(constantMatch);
+    }
+    return data
+      .getEvaluationCache()
+      .getValueMatch(
+        key,
+        lookupContext,
+        () -> configResolver.getValueMatch(key, lookupContext)
+      );
+  }
+
   public Optional<Match> getRawMatch(String key, LookupContext lookupContext) {
     return configResolver.getRawMatch(key, lookupContext);
   }
@@ -223,4 +239,18 @@ public class UpdatingConfigResolver {
   public PrefabContextSetReadable getGlobalContext() {
     return configStore.getGlobalContext();
   }
+
+  /**
+   * @return the global and api default contexts, pre-merged for the current config snapshot
+   */
+  public PrefabContextSetReadable getBaseContext() {
+    return configStore.getData().getBaseContextSet();
+  }
+
+  /**
+   * @return the current config snapshot, for callers keying work on it
+   */
+  MergedConfigData getData() {
+    return configStore.getData();
+  }
 }
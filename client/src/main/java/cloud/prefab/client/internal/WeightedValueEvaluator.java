@@ -36,9 +36,17 @@ public class WeightedValueEvaluator {
     Prefab.WeightedValues weightedValues,
     String featureName,
     LookupContext lookupContext
+  ) {
+    return toResult(Distribution.of(weightedValues), featureName, lookupContext);
+  }
+
+  Result toResult(
+    Distribution distribution,
+    String featureName,
+    LookupContext lookupContext
   ) {
     Optional<String> hashPropertyValue = getHashPropertyValue(
-      weightedValues,
+      distribution.weightedValues,
       lookupContext
     )
       .flatMap(ConfigValueUtils::coerceToString);
@@ -46,9 +54,10 @@ public class WeightedValueEvaluator {
     double pctThroughDistribution = hashPropertyValue
       .map(s -> getUserPct(featureName, s))
       .orElseGet(randomProvider::random);
-    return getValueFromWeightsAndPercent(
-      weightedValues.getWeightedValuesList(),
-      pctThroughDistribution
+    int index = distribution.indexOf(pctThroughDistribution);
+    return Result.of(
+      distribution.weightedValues.getWeightedValues(index).getValue(),
+      index
     );
   }
 
@@ -63,32 +72,81 @@ public class WeightedValueEvaluator {
     return Optional.empty();
   }
 
-  private Result getValueFromWeightsAndPercent(
-    List<Prefab.WeightedValue> weightedValues,
-    double targetPctThroughDistribution
-  ) {
-    int distributionSpace = weightedValues
-      .stream()
-      .map(Prefab.WeightedValue::getWeight)
-      .reduce(Integer::sum)
-      .orElse(1);
-    int sum = 0;
-    int index = 0;
-    for (Prefab.WeightedValue weightedValue : weightedValues) {
-      sum += weightedValue.getWeight();
-      double percentThroughDistribution = sum / (double) distributionSpace;
-      if (targetPctThroughDistribution <= percentThroughDistribution) {
-        return Result.of(weightedValue.getValue(), index);
+  private double getUserPct(String featureName, String configValue) {
+    return hashProvider.hash(featureName, configValue);
+  }
+
+  /**
+   * The bucket boundaries of a WeightedValues, computed once when its config is compiled
+   */
+  static final class Distribution {
+
+    private final Prefab.WeightedValues weightedValues;
+
+    // running weight total at each value as a fraction of the overall total
+    private final double[] thresholds;
+
+    // false if a negative weight (or a zero total) makes thresholds unsorted,
+    // then buckets are found by a linear scan as before
+    private final boolean sorted;
+
+    private Distribution(
+      Prefab.WeightedValues weightedValues,
+      double[] thresholds,
+      boolean sorted
+    ) {
+      this.weightedValues = weightedValues;
+      this.thresholds = thresholds;
+      this.sorted = sorted;
+    }
+
+    static Distribution of(Prefab.WeightedValues weightedValues) {
+      List<Prefab.WeightedValue> values = weightedValues.getWeightedValuesList();
+      int distributionSpace = values.isEmpty() ? 1 : 0;
+      for (Prefab.WeightedValue weightedValue : values) {
+        distributionSpace += weightedValue.getWeight();
+      }
+      double[] thresholds = new double[values.size()];
+      boolean sorted = true;
+      int sum = 0;
+      for (int i = 0; i < thresholds.length; i++) {
+        sum += values.get(i).getWeight();
+        thresholds[i] = sum / (double) distributionSpace;
+        double previous = i == 0 ? Double.NEGATIVE_INFINITY : thresholds[i - 1];
+        // also false for NaN
+        sorted &= thresholds[i] >= previous;
       }
-      index++;
+      return new Distribution(weightedValues, thresholds, sorted);
     }
-    // variants didn't add up to 100%
-    return Result.of(weightedValues.get(0).getValue(), 0);
-  }
 
-  private double getUserPct(String featureName, String configValue) {
-    final String toHash = featureName + configValue;
-    return hashProvider.hash(toHash);
+    /**
+     * The index of the first value whose threshold is at or above the given percentage,
+     * or 0 if the variants don't add up to 100%
+     */
+    int indexOf(double pctThroughDistribution) {
+      if (!sorted) {
+        for (int i = 0; i < thresholds.length; i++) {
+          if (pctThroughDistribution <= thresholds[i]) {
+            return i;
+          }
+        }
+        return 0;
+      }
+      int low = 0;
+      int high = thresholds.length - 1;
+      if (high < 0 || !(pctThroughDistribution <= thresholds[high])) {
+        return 0;
+      }
+      while (low < high) {
+        int mid = (low + high) >>> 1;
+        if (pctThroughDistribution <= thresholds[mid]) {
+          high = mid;
+        } else {
+          low = mid + 1;
+        }
+      }
+      return low;
+    }
   }
 
   public static class Result {
@@ -1,8 +1,10 @@
 package cloud.prefab.context;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import javax.annotation.Nullable;
 
 /**
  * Used to stack context stores when one ContextStore may not work for all cases
@@ -10,38 +12,97 @@ import java.util.Optional;
  * Where a ContextStore backed by ServerRequestContext works for HTTP but for GRPC, ServerRequestContext is not available
  * Picks the first context store that returns true
  * NOOPs quietly if there are no valid stores
+ * Nested composites are flattened when this is built, and the store is picked through
+ * forCurrentScope, so a store can hand back a view bound to whatever it looked up to decide it
+ * was available and the call made on it doesn't look that up again. The stores in this library
+ * hand back a scope they keep rather than a new one, so picking one allocates nothing; callers
+ * making several calls (as ConfigClientImpl does per lookup) still pick once and reuse it.
  */
 public class CompositeContextStore implements ContextStore {
 
-  private final List<ContextStore> contextStores;
+  private final ContextStore[] contextStores;
 
   public CompositeContextStore(ContextStore... contextStores) {
-    this.contextStores = Arrays.asList(contextStores);
+    this.contextStores = flatten(contextStores);
+  }
+
+  private static ContextStore[] flatten(ContextStore[] contextStores) {
+    List<ContextStore> flattened = new ArrayList<>(contextStores.length);
+    for (ContextStore contextStore : contextStores) {
+      if (contextStore instanceof CompositeContextStore) {
+        CompositeContextStore composite = (CompositeContextStore) contextStore;
+        flattened.addAll(Arrays.asList(composite.contextStores));
+      } else {
+        flattened.add(contextStore);
+      }
+    }
+    return flattened.toArray(new ContextStore[0]);
   }
 
   @Override
   public void addContext(PrefabContext prefabContext) {
-    getValidStore().ifPresent(cs -> cs.addContext(prefabContext));
+    ContextStore contextStore = currentStore();
+    if (contextStore != null) {
+      contextStore.addContext(prefabContext);
+    }
   }
 
   @Override
   public Optional<PrefabContextSetReadable> setContext(
     PrefabContextSetReadable prefabContextSetReadable
   ) {
-    return getValidStore().flatMap(cs -> cs.setContext(prefabContextSetReadable));
+    ContextStore contextStore = currentStore();
+    if (contextStore == null) {
+      return Optional.empty();
+    }
+    return contextStore.setContext(prefabContextSetReadable);
   }
 
   @Override
   public Optional<PrefabContextSetReadable> clearContext() {
-    return getValidStore().flatMap(ContextStore::clearContext);
+    ContextStore contextStore = currentStore();
+    if (contextStore == null) {
+      return Optional.empty();
+    }
+    return contextStore.clearContext();
   }
 
   @Override
   public Optional<PrefabContextSetReadable> getContext() {
-    return getValidStore().flatMap(ContextStore::getContext);
+    ContextStore contextStore = currentStore();
+    if (contextStore == null) {
+      return Optional.empty();
+    }
+    return contextStore.getContext();
+  }
+
+  @Override
+  public boolean isAvailable() {
+    for (ContextStore contextStore : contextStores) {
+      if (contextStore.isAvailable()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @return the first store available in the current scope, as that store scopes itself
+   */
+  @Override
+  public Optional<ContextStore> forCurrentScope() {
+    for (ContextStore contextStore : contextStores) {
+      Optional<ContextStore> scoped = contextStore.forCurrentScope();
+      if (scoped.isPresent()) {
+        return scoped;
+      }
+    }
+    return Optional.empty();
   }
 
-  Optional<ContextStore> getValidStore() {
-    return contextStores.stream().filter(ContextStore::isAvailable).findFirst();
+  @Nullable
+  private ContextStore currentStore() {
+    // the child's own scope is returned as is, so this doesn't allocate one
+    return forCurrentScope().orElse(null);
   }
 }
@@ -0,0 +1,61 @@
+package cloud.prefab.context;
+
+import cloud.prefab.domain.Prefab;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Computes PrefabContextSetReadable.getFingerPrintHash. Like getFingerPrint it covers the named
+ * contexts with a key property, in name order, and the key's type as well as its value.
+ */
+final class ContextFingerPrints {
+
+  private ContextFingerPrints() {}
+
+  static long hash(Iterable<PrefabContext> contexts) {
+    List<PrefabContext> keyed = new ArrayList<>(4);
+    for (PrefabContext context : contexts) {
+      if (!context.getName().isBlank() && context.getProperties().containsKey("key")) {
+        keyed.add(context);
+      }
+    }
+    if (keyed.isEmpty()) {
+      return PrefabContextSetReadable.NO_FINGERPRINT;
+    }
+    keyed.sort(Comparator.comparing(PrefabContext::getName));
+
+    Hasher hasher = Hashing.murmur3_128().newHasher();
+    for (PrefabContext context : keyed) {
+      hasher.putString(context.getName(), StandardCharsets.UTF_8).putByte((byte) 0);
+      putValue(hasher, context.getProperties().get("key"));
+    }
+    long hash = hasher.hash().asLong();
+    return hash == PrefabContextSetReadable.NO_FINGERPRINT ? 1 : hash;
+  }
+
+  private static void putValue(Hasher hasher, Prefab.ConfigValue value) {
+    hasher.putInt(value.getTypeCase().getNumber());
+    switch (value.getTypeCase()) {
+      case STRING:
+        hasher.putString(value.getString(), StandardCharsets.UTF_8);
+        break;
+      case INT:
+        hasher.putLong(value.getInt());
+        break;
+      case DOUBLE:
+        hasher.putDouble(value.getDouble());
+        break;
+      case BOOL:
+        hasher.putBoolean(value.getBool());
+        break;
+      default:
+        hasher.putBytes(value.toByteArray());
+    }
+    // keeps one context's value from running into the next context's name
+    hasher.putByte((byte) 0);
+  }
+}
@@ -0,0 +1,221 @@
+package cloud.prefab.context;
+
+import cloud.prefab.client.config.ConfigValueUtils;
+import cloud.prefab.domain.Prefab;
+import com.google.common.collect.ImmutableMap;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Property storage for a PrefabContext. Values given to PrefabContext.Builder are kept as the
+ * plain Java values they were put as (String, Long, Double, Boolean or a string list) and only
+ * turned into ConfigValues when something reads them; the ConfigValue then replaces the raw
+ * value. Most properties on a context are never read by a rule so most are never converted.
+ * The plain and the context-name-qualified property names are indexed once, with the context.
+ */
+final class ContextProperties {
+
+  private final String[] names;
+  private final AtomicReferenceArray<Object> values;
+
+  private final Map<String, Prefab.ConfigValue> properties;
+  private final Map<String, Prefab.ConfigValue> qualifiedProperties;
+
+  ContextProperties(String contextName, Map<String, ?> rawValues) {
+    int size = rawValues.size();
+    this.names = new String[size];
+    this.values = new AtomicReferenceArray<>(size);
+    int i = 0;
+    for (Map.Entry<String, ?> entry : rawValues.entrySet()) {
+      names[i] = checkKey(entry.getKey());
+      values.set(i, checkValue(entry.getValue()));
+      i++;
+    }
+    this.properties = new View(names, index(names));
+    if (contextName.isBlank()) {
+      this.qualifiedProperties = properties;
+    } else {
+      String prefix = contextName + ".";
+      String[] qualifiedNames = new String[size];
+      for (int j = 0; j < size; j++) {
+        qualifiedNames[j] = prefix + names[j];
+      }
+      this.qualifiedProperties = new View(qualifiedNames, index(qualifiedNames));
+    }
+  }
+
+  Map<String, Prefab.ConfigValue> getProperties() {
+    return properties;
+  }
+
+  Map<String, Prefab.ConfigValue> getQualifiedProperties() {
+    return qualifiedProperties;
+  }
+
+  int size() {
+    return names.length;
+  }
+
+  String name(int index) {
+    return names[index];
+  }
+
+  /**
+   * @return the type the property's ConfigValue has or will have, without converting it
+   */
+  Prefab.ConfigValue.TypeCase typeCase(int index) {
+    Object value = values.get(index);
+    if (value instanceof Prefab.ConfigValue) {
+      return ((Prefab.ConfigValue) value).getTypeCase();
+    }
+    if (value instanceof String) {
+      return Prefab.ConfigValue.TypeCase.STRING;
+    }
+    if (value instanceof Long) {
+      return Prefab.ConfigValue.TypeCase.INT;
+    }
+    if (value instanceof Double) {
+      return Prefab.ConfigValue.TypeCase.DOUBLE;
+    }
+    if (value instanceof Boolean) {
+      return Prefab.ConfigValue.TypeCase.BOOL;
+    }
+    return Prefab.ConfigValue.TypeCase.STRING_LIST;
+  }
+
+  private Prefab.ConfigValue configValue(int index) {
+    Object value = values.get(index);
+    if (value instanceof Prefab.ConfigValue) {
+      return (Prefab.ConfigValue) value;
+    }
+    Prefab.ConfigValue configValue = toConfigValue(value);
+    // racing readers build equal values, whichever is stored last wins
+    values.set(index, configValue);
+    return configValue;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Prefab.ConfigValue toConfigValue(Object value) {
+    if (value instanceof String) {
+      return ConfigValueUtils.from((String) value);
+    }
+    if (value instanceof Long) {
+      return ConfigValueUtils.from((long) (Long) value);
+    }
+    if (value instanceof Double) {
+      return ConfigValueUtils.from((double) (Double) value);
+    }
+    if (value instanceof Boolean) {
+      return ConfigValueUtils.from((boolean) (Boolean) value);
+    }
+    return ConfigValueUtils.from((List<String>) value);
+  }
+
+  private static String checkKey(String key) {
+    if (key == null) {
+      throw new NullPointerException("context property names must not be null");
+    }
+    return key;
+  }
+
+  private static Object checkValue(Object value) {
+    if (
+      value instanceof Prefab.ConfigValue ||
+      value instanceof String ||
+      value instanceof Long ||
+      value instanceof Double ||
+      value instanceof Boolean ||
+      value instanceof List
+    ) {
+      return value;
+    }
+    if (value == null) {
+      throw new NullPointerException("context property values must not be null");
+    }
+    throw new IllegalArgumentException(
+      "unsupported context property value type " + value.getClass().getName()
+    );
+  }
+
+  private static ImmutableMap<String, Integer> index(String[] keys) {
+    ImmutableMap.Builder<String, Integer> index = ImmutableMap.builderWithExpectedSize(
+      keys.length
+    );
+    for (int i = 0; i < keys.length; i++) {
+      index.put(keys[i], i);
+    }
+    return index.build();
+  }
+
+  /**
+   * Read-only map over the values keyed by either the plain or the qualified names
+   */
+  private final class View extends AbstractMap<String, Prefab.ConfigValue> {
+
+    private final String[] keys;
+    private final ImmutableMap<String, Integer> index;
+
+    View(String[] keys, ImmutableMap<String, Integer> index) {
+      this.keys = keys;
+      this.index = index;
+    }
+
+    @Override
+    public Prefab.ConfigValue get(Object key) {
+      Integer i = index.get(key);
+      return i == null ? null : configValue(i);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+      return index.containsKey(key);
+    }
+
+    @Override
+    public int size() {
+      return keys.length;
+    }
+
+    @Override
+    public boolean isEmpty() {
+      return keys.length == 0;
+    }
+
+    @Override
+    public Set<Entry<String, Prefab.ConfigValue>> entrySet() {
+      return new AbstractSet<>() {
+        @Override
+        public Iterator<Entry<String, Prefab.ConfigValue>> iterator() {
+          return new Iterator<>() {
+            private int next = 0;
+
+            @Override
+            public boolean hasNext() {
+              return next < keys.length;
+            }
+
+            @Override
+            public Entry<String, Prefab.ConfigValue> next() {
+              if (next >= keys.length) {
+                throw new NoSuchElementException();
+              }
+              int i = next++;
+              return new SimpleImmutableEntry<>(keys[i], configValue(i));
+            }
+          };
+        }
+
+        @Override
+        public int size() {
+          return keys.length;
+        }
+      };
+    }
+  }
+}
@@ -41,4 +41,15 @@ public interface ContextStore {
   default boolean isAvailable() {
     return true;
   }
+
+  /**
+   * The store that serves calls made in the current scope, for callers making several calls in
+   * a row to pick once. A store whose isAvailable check is costly may return a view bound to
+   * what that check looked up, valid only until the scope ends. This is called on every config
+   * lookup, so stores should return an Optional they keep rather than build one per call.
+   * @return this store when it is available (the default), otherwise empty
+   */
+  default Optional<ContextStore> forCurrentScope() {
+    return isAvailable() ? Optional.of(this) : Optional.empty();
+  }
 }
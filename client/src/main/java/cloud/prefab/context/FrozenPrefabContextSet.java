@@ -0,0 +1,164 @@
+package cloud.prefab.context;
+
+import cloud.prefab.domain.Prefab;
+import com.google.common.collect.ImmutableList;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.TreeMap;
+
+/**
+ * An immutable context set for the handful of contexts a lookup carries. Context names are lower
+ * cased once, when the set is built, and kept in a small sorted array next to the contexts, so
+ * getByName doesn't allocate and getContexts returns the same list every time.
+ * Build one with PrefabContextSet.freeze or FrozenPrefabContextSet.of; use PrefabContextSet when
+ * a mutable set is needed.
+ */
+public final class FrozenPrefabContextSet implements PrefabContextSetReadable {
+
+  public static final FrozenPrefabContextSet EMPTY = new FrozenPrefabContextSet(
+    new String[0],
+    ImmutableList.of()
+  );
+
+  // lower cased and sorted, at the same index as their context
+  private final String[] names;
+  private final ImmutableList<PrefabContext> contexts;
+
+  // written before fingerPrintHashed, so a reader seeing the flag set sees the hash
+  private volatile long fingerPrintHash;
+  private volatile boolean fingerPrintHashed = false;
+
+  private FrozenPrefabContextSet(String[] names, ImmutableList<PrefabContext> contexts) {
+    this.names = names;
+    this.contexts = contexts;
+  }
+
+  /**
+   * @return the argument if it is already frozen, otherwise a frozen copy of its contexts
+   */
+  public static FrozenPrefabContextSet of(
+    PrefabContextSetReadable prefabContextSetReadable
+  ) {
+    if (prefabContextSetReadable instanceof FrozenPrefabContextSet) {
+      return (FrozenPrefabContextSet) prefabContextSetReadable;
+    }
+    return of(prefabContextSetReadable.getContexts());
+  }
+
+  /**
+   * Null contexts are ignored and, as with PrefabContextSet.addContext, the last context with a
+   * given name wins
+   */
+  public static FrozenPrefabContextSet of(Iterable<PrefabContext> prefabContexts) {
+    TreeMap<String, PrefabContext> contextByName = new TreeMap<>();
+    for (PrefabContext context : prefabContexts) {
+      if (context != null) {
+        contextByName.put(context.getName().toLowerCase(), context);
+      }
+    }
+    if (contextByName.isEmpty()) {
+      return EMPTY;
+    }
+    return new FrozenPrefabContextSet(
+      contextByName.keySet().toArray(new String[0]),
+      ImmutableList.copyOf(contextByName.values())
+    );
+  }
+
+  /**
+   * @return a copy of this set with the given context added, replacing any with the same name
+   */
+  public FrozenPrefabContextSet with(PrefabContext prefabContext) {
+    if (prefabContext == null) {
+      return this;
+    }
+    String name = prefabContext.getName().toLowerCase();
+    int index = Arrays.binarySearch(names, name);
+    if (index >= 0) {
+      PrefabContext[] newContexts = contexts.toArray(new PrefabContext[0]);
+      newContexts[index] = prefabContext;
+      return new FrozenPrefabContextSet(names, ImmutableList.copyOf(newContexts));
+    }
+    int insertAt = -index - 1;
+    String[] newNames = new String[names.length + 1];
+    System.arraycopy(names, 0, newNames, 0, insertAt);
+    System.arraycopy(names, insertAt, newNames, insertAt + 1, names.length - insertAt);
+    newNames[insertAt] = name;
+    ImmutableList<PrefabContext> newContexts = ImmutableList
+      .<PrefabContext>builderWithExpectedSize(newNames.length)
+      .addAll(contexts.subList(0, insertAt))
+      .add(prefabContext)
+      .addAll(contexts.subList(insertAt, contexts.size()))
+      .build();
+    return new FrozenPrefabContextSet(newNames, newContexts);
+  }
+
+  @Override
+  public Optional<PrefabContext> getByName(String contextName) {
+    // names are nearly always asked for in lower case already, so try them as given first
+    for (int i = 0; i < names.length; i++) {
+      if (names[i].equals(contextName)) {
+        return Optional.of(contexts.get(i));
+      }
+    }
+    String lowerCasedName = contextName.toLowerCase();
+    for (int i = 0; i < names.length; i++) {
+      if (names[i].equals(lowerCasedName)) {
+        return Optional.of(contexts.get(i));
+      }
+    }
+    return Optional.empty();
+  }
+
+  @Override
+  public ImmutableList<PrefabContext> getContexts() {
+    return contexts;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return contexts.isEmpty();
+  }
+
+  @Override
+  public long getFingerPrintHash() {
+    if (!fingerPrintHashed) {
+      fingerPrintHash = ContextFingerPrints.hash(contexts);
+      fingerPrintHashed = true;
+    }
+    return fingerPrintHash;
+  }
+
+  public Prefab.ContextSet toProto() {
+    Prefab.ContextSet.Builder bldr = Prefab.ContextSet.newBuilder();
+    for (PrefabContext context : contexts) {
+      bldr.addContexts(context.toProtoContext());
+    }
+    return bldr.build();
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    FrozenPrefabContextSet that = (FrozenPrefabContextSet) o;
+    return Arrays.equals(names, that.names) && contexts.equals(that.contexts);
+  }
+
+  @Override
+  public int hashCode() {
+    return contexts.hashCode();
+  }
+
+  @Override
+  public String toString() {
+    return com.google.common.base.MoreObjects
+      .toStringHelper(this)
+      .add("contexts", contexts)
+      .toString();
+  }
+}
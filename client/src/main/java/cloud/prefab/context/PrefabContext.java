@@ -1,7 +1,7 @@
 package cloud.prefab.context;
 
-import cloud.prefab.client.config.ConfigValueUtils;
 import cloud.prefab.domain.Prefab;
+import com.google.common.collect.ImmutableList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -14,11 +14,17 @@ public class PrefabContext implements PrefabContextSetReadable {
 
   private final String name;
 
+  // values put through the builder become ConfigValues when first read, see ContextProperties
+  private final ContextProperties contextProperties;
   private final Map<String, Prefab.ConfigValue> properties;
 
-  private PrefabContext(String name, Map<String, Prefab.ConfigValue> properties) {
+  // 0 until first computed, see getShapeSignature
+  private volatile long shapeSignature;
+
+  private PrefabContext(String name, Map<String, ?> properties) {
     this.name = name;
-    this.properties = Map.copyOf(properties);
+    this.contextProperties = new ContextProperties(name, properties);
+    this.properties = contextProperties.getProperties();
   }
 
   public String getName() {
@@ -34,6 +40,15 @@ public class PrefabContext implements PrefabContextSetReadable {
     return properties;
   }
 
+  /**
+   * @return the properties keyed by context name (as given, not lower cased) and property name,
+   * e.g. User.email; the properties of an unnamed context are not prefixed. The keys are
+   * indexed when the context is built, values are converted on first read.
+   */
+  public Map<String, Prefab.ConfigValue> getQualifiedProperties() {
+    return contextProperties.getQualifiedProperties();
+  }
+
   public Map<String, Prefab.ConfigValue> getNameQualifiedProperties() {
     if (name.isBlank()) {
       return getProperties();
@@ -101,12 +116,54 @@ public class PrefabContext implements PrefabContextSetReadable {
     Prefab.ContextShape.Builder shapeBuilder = Prefab.ContextShape
       .newBuilder()
       .setName(getName());
-    properties.forEach((key, value) ->
-      shapeBuilder.putFieldTypes(key, value.getTypeCase().getNumber())
-    );
+    for (int i = 0; i < contextProperties.size(); i++) {
+      shapeBuilder.putFieldTypes(
+        contextProperties.name(i),
+        contextProperties.typeCase(i).getNumber()
+      );
+    }
     return shapeBuilder.build();
   }
 
+  /**
+   * A 64 bit hash of the context name and each property's name and type, the same for every
+   * context with the same shape (whatever order the properties were put in), so callers can
+   * tell a shape they've already seen without building it. Computed once per context, without
+   * converting any property values.
+   */
+  public long getShapeSignature() {
+    long signature = shapeSignature;
+    if (signature == 0) {
+      signature = mix(hash(name));
+      for (int i = 0; i < contextProperties.size(); i++) {
+        // summed so the property order doesn't matter
+        long nameHash = hash(contextProperties.name(i));
+        signature += mix(nameHash + contextProperties.typeCase(i).getNumber());
+      }
+      if (signature == 0) {
+        signature = 1;
+      }
+      shapeSignature = signature;
+    }
+    return signature;
+  }
+
+  // 64 bit FNV-1a, String.hashCode collides too easily to stand in for the shape
+  private static long hash(String string) {
+    long hash = 0xcbf29ce484222325L;
+    for (int i = 0; i < string.length(); i++) {
+      hash = (hash ^ string.charAt(i)) * 0x100000001b3L;
+    }
+    return hash;
+  }
+
+  // spreads the bits so sums of hashes don't cancel out
+  private static long mix(long value) {
+    value = (value ^ (value >>> 33)) * 0xff51afd7ed558ccdL;
+    value = (value ^ (value >>> 33)) * 0xc4ceb9fe1a85ec53L;
+    return value ^ (value >>> 33);
+  }
+
   public static PrefabContext unnamedFromMap(
     Map<String, Prefab.ConfigValue> configValueMap
   ) {
@@ -127,34 +184,39 @@ public class PrefabContext implements PrefabContextSetReadable {
   public static class Builder {
 
     private final String contextType;
-    private final Map<String, Prefab.ConfigValue> properties = new HashMap<>();
+    // raw values, converted to ConfigValues on first read
+    private final Map<String, Object> properties = new HashMap<>();
 
     private Builder(String contextType) {
       this.contextType = contextType;
     }
 
     public Builder put(String propertyName, String value) {
-      return put(propertyName, ConfigValueUtils.from(value));
+      return putRaw(propertyName, Objects.requireNonNull(value));
     }
 
     public Builder put(String propertyName, boolean value) {
-      return put(propertyName, ConfigValueUtils.from(value));
+      return putRaw(propertyName, value);
     }
 
     public Builder put(String propertyName, long value) {
-      return put(propertyName, ConfigValueUtils.from(value));
+      return putRaw(propertyName, value);
     }
 
     public Builder put(String propertyName, double value) {
-      return put(propertyName, ConfigValueUtils.from(value));
+      return putRaw(propertyName, value);
     }
 
     public Builder put(String propertyName, List<String> value) {
-      return put(propertyName, ConfigValueUtils.from(value));
+      return putRaw(propertyName, ImmutableList.copyOf(value));
     }
 
     public Builder put(String propertyName, Prefab.ConfigValue configValue) {
-      properties.put(propertyName, configValue);
+      return putRaw(propertyName, Objects.requireNonNull(configValue));
+    }
+
+    private Builder putRaw(String propertyName, Object value) {
+      properties.put(propertyName, value);
       return this;
     }
 
@@ -26,7 +26,8 @@ public class PrefabContextHelper {
 
   /**
    * Replaces the contents of the PrefabContext while the specified callable is running,
-   * then restores the PrefabContext to original value
+   * then restores the PrefabContext to original value.
+   * With a ScopedContextStore the context is bound for the call instead, see ScopedValueContextStore
    * @param prefabContext the contents of PrefabContext while runnable is running
    * @param callable to run
    * @return the return value of the callable
@@ -35,6 +36,9 @@ public class PrefabContextHelper {
     PrefabContextSetReadable prefabContext,
     Callable<T> callable
   ) throws Exception {
+    if (contextStore instanceof ScopedContextStore) {
+      return ((ScopedContextStore) contextStore).callWithContext(prefabContext, callable);
+    }
     try (PrefabContextScope ignored = performWorkWithAutoClosingContext(prefabContext)) {
       return callable.call();
     }
@@ -42,7 +46,8 @@ public class PrefabContextHelper {
 
   /**
    * Replaces the contents of the PrefabContext while the specified runnable is running,
-   * then restores the PrefabContext to original value
+   * then restores the PrefabContext to original value.
+   * With a ScopedContextStore the context is bound for the run instead, see ScopedValueContextStore
    * @param prefabContext the contents of PrefabContext while runnable is running
    * @param runnable to run
    */
@@ -50,6 +55,10 @@ public class PrefabContextHelper {
     PrefabContextSetReadable prefabContext,
     Runnable runnable
   ) {
+    if (contextStore instanceof ScopedContextStore) {
+      ((ScopedContextStore) contextStore).runWithContext(prefabContext, runnable);
+      return;
+    }
     try (PrefabContextScope ignored = performWorkWithAutoClosingContext(prefabContext)) {
       runnable.run();
     }
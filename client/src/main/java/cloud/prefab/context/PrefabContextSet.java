@@ -31,6 +31,13 @@ public class PrefabContextSet implements PrefabContextSetReadable {
     return ImmutableList.copyOf(contextByNameMap.values());
   }
 
+  /**
+   * @return an immutable copy of this set, see FrozenPrefabContextSet
+   */
+  public FrozenPrefabContextSet freeze() {
+    return FrozenPrefabContextSet.of(contextByNameMap.values());
+  }
+
   public static PrefabContextSet from(PrefabContext... contexts) {
     PrefabContextSet set = new PrefabContextSet();
     for (PrefabContext context : contexts) {
@@ -11,6 +11,11 @@ import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
 
 public interface PrefabContextSetReadable {
+  /**
+   * Returned by getFingerPrintHash when no context has a key
+   */
+  long NO_FINGERPRINT = 0;
+
   Optional<PrefabContext> getByName(String contextName);
   Iterable<PrefabContext> getContexts();
 
@@ -99,4 +104,13 @@ public interface PrefabContextSetReadable {
       )
       .collect(Collectors.joining());
   }
+
+  /**
+   * A 64 bit hash of what getFingerPrint describes - the name and key of each keyed, named
+   * context - computed without building strings. FrozenPrefabContextSet caches it.
+   * @return the hash, or NO_FINGERPRINT if no context has a key
+   */
+  default long getFingerPrintHash() {
+    return ContextFingerPrints.hash(getContexts());
+  }
 }
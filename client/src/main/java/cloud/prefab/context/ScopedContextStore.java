@@ -0,0 +1,21 @@
+package cloud.prefab.context;
+
+import java.util.concurrent.Callable;
+
+/**
+ * A ContextStore whose context is bound to a unit of work rather than set and later cleared.
+ * PrefabContextHelper.performWorkWithContext binds through these methods when its store is one.
+ */
+public interface ScopedContextStore extends ContextStore {
+  /**
+   * Runs the runnable with the given context as the stored context
+   */
+  void runWithContext(PrefabContextSetReadable prefabContext, Runnable runnable);
+
+  /**
+   * Calls the callable with the given context as the stored context
+   * @return the return value of the callable
+   */
+  <T> T callWithContext(PrefabContextSetReadable prefabContext, Callable<T> callable)
+    throws Exception;
+}
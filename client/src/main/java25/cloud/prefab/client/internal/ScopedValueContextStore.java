@@ -0,0 +1,120 @@
+package cloud.prefab.client.internal;
+
+import cloud.prefab.context.ContextStore;
+import cloud.prefab.context.PrefabContext;
+import cloud.prefab.context.PrefabContextSetReadable;
+import cloud.prefab.context.ScopedContextStore;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+
+/**
+ * A ContextStore for servers running on virtual threads. The context is bound with a ScopedValue
+ * for the duration of runWithContext / callWithContext, so nothing is allocated per thread and
+ * the binding is inherited by StructuredTaskScope subtasks.
+ * Each binding holds one Binding shared with its subtasks; addContext, setContext and
+ * clearContext replace the StoredContext it holds. Outside a binding the store is unavailable:
+ * it has no context and changes to it are ignored.
+ * This is the Java 25 copy of the class, see src/main/java for the one used on older runtimes.
+ */
+public class ScopedValueContextStore
+  implements ScopedContextStore, StoredContextSource {
+
+  public static final ScopedValueContextStore INSTANCE = new ScopedValueContextStore();
+
+  private static final ScopedValue<Binding> SCOPE = ScopedValue.newInstance();
+  private static final Optional<ContextStore> BOUND = Optional.of(INSTANCE);
+
+  private ScopedValueContextStore() {}
+
+  @Override
+  public void runWithContext(PrefabContextSetReadable prefabContext, Runnable runnable) {
+    ScopedValue.where(SCOPE, bind(prefabContext)).run(runnable);
+  }
+
+  @Override
+  public <T> T callWithContext(
+    PrefabContextSetReadable prefabContext,
+    Callable<T> callable
+  ) throws Exception {
+    return ScopedValue.where(SCOPE, bind(prefabContext)).call(callable::call);
+  }
+
+  private static Binding bind(PrefabContextSetReadable prefabContext) {
+    return new Binding(StoredContext.of(prefabContext));
+  }
+
+  @Override
+  public void addContext(PrefabContext prefabContext) {
+    if (SCOPE.isBound()) {
+      SCOPE.get().add(prefabContext);
+    }
+  }
+
+  @Override
+  public Optional<PrefabContextSetReadable> setContext(
+    PrefabContextSetReadable prefabContextSetReadable
+  ) {
+    if (!SCOPE.isBound()) {
+      return Optional.empty();
+    }
+    return Optional.of(
+      SCOPE.get().replace(StoredContext.of(prefabContextSetReadable)).getContextSet()
+    );
+  }
+
+  @Override
+  public Optional<PrefabContextSetReadable> clearContext() {
+    if (!SCOPE.isBound()) {
+      return Optional.empty();
+    }
+    return Optional.of(SCOPE.get().replace(StoredContext.EMPTY).getContextSet());
+  }
+
+  @Override
+  public Optional<PrefabContextSetReadable> getContext() {
+    if (!SCOPE.isBound()) {
+      return Optional.empty();
+    }
+    return Optional.of(SCOPE.get().storedContext.getContextSet());
+  }
+
+  @Override
+  public StoredContext getStoredContext() {
+    if (!SCOPE.isBound()) {
+      return StoredContext.EMPTY;
+    }
+    return SCOPE.get().storedContext;
+  }
+
+  @Override
+  public boolean isAvailable() {
+    return SCOPE.isBound();
+  }
+
+  @Override
+  public Optional<ContextStore> forCurrentScope() {
+    return SCOPE.isBound() ? BOUND : Optional.empty();
+  }
+
+  /**
+   * What one runWithContext / callWithContext binds, shared with the subtasks it forks
+   */
+  private static final class Binding {
+
+    private volatile StoredContext storedContext;
+
+    Binding(StoredContext storedContext) {
+      this.storedContext = storedContext;
+    }
+
+    synchronized void add(PrefabContext prefabContext) {
+      storedContext = storedContext.with(prefabContext);
+    }
+
+    synchronized StoredContext replace(StoredContext replacement) {
+      StoredContext previous = storedContext;
+      storedContext = replacement;
+      return previous;
+    }
+  }
+}
@@ -0,0 +1,133 @@
+package cloud.prefab.client.internal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import cloud.prefab.client.ConfigClient;
+import cloud.prefab.client.config.ConfigElement;
+import cloud.prefab.client.config.Match;
+import cloud.prefab.client.config.Provenance;
+import cloud.prefab.domain.Prefab;
+import org.junit.jupiter.api.Test;
+
+class CompiledConfigTest {
+
+  @Test
+  void itOrdersTheActiveEnvRowsFirstAndDropsOtherEnvs() {
+    ConfigElement element = element(
+      row(Prefab.ConditionalValue.newBuilder().setValue(sv("default"))),
+      row(Prefab.ConditionalValue.newBuilder().setValue(sv("other-env")))
+        .setProjectEnvId(8),
+      row(Prefab.ConditionalValue.newBuilder().setValue(sv("env"))).setProjectEnvId(7)
+    );
+
+    CompiledConfig.CompiledRow[] rows = element.getCompiledConfig(7).getRows();
+    assertThat(rows).hasSize(2);
+    assertThat(rows[0].getValues()[0].getValue()).isEqualTo(sv("env"));
+    assertThat(rows[0].getEnvId()).contains(7L);
+    assertThat(rows[1].getValues()[0].getValue()).isEqualTo(sv("default"));
+    assertThat(rows[1].getEnvId()).isEmpty();
+  }
+
+  @Test
+  void itFoldsUnconditionalValues() {
+    ConfigElement element = element(
+      row(Prefab.ConditionalValue.newBuilder().setValue(sv("value")))
+    );
+
+    Match match = element.getCompiledConfig(0).constantMatch(element);
+    assertThat(match).isNotNull();
+    assertThat(match.getConfigValue()).isEqualTo(sv("value"));
+    assertThat(match.getRowIndex()).isZero();
+    assertThat(match.getConditionalValueIndex()).isZero();
+    assertThat(match.getEvaluatedCriterion()).isEmpty();
+  }
+
+  @Test
+  void itFoldsPastAlwaysTrueCriteriaAndPicksTheEnvRow() {
+    ConfigElement element = element(
+      row(Prefab.ConditionalValue.newBuilder().setValue(sv("default"))),
+      row(
+          Prefab.ConditionalValue
+            .newBuilder()
+            .addCriteria(
+              Prefab.Criterion
+                .newBuilder()
+                .setOperator(Prefab.Criterion.CriterionOperator.ALWAYS_TRUE)
+            )
+            .setValue(sv("env"))
+        )
+        .setProjectEnvId(7)
+    );
+
+    Match match = element.getCompiledConfig(7).constantMatch(element);
+    assertThat(match).isNotNull();
+    assertThat(match.getConfigValue()).isEqualTo(sv("env"));
+    assertThat(match.getEnvId()).contains(7L);
+  }
+
+  @Test
+  void itDoesNotFoldContextDependentConfigs() {
+    ConfigElement element = element(
+      row(
+        Prefab.ConditionalValue
+          .newBuilder()
+          .addCriteria(
+            Prefab.Criterion
+              .newBuilder()
+              .setPropertyName("user.plan")
+              .setOperator(Prefab.Criterion.CriterionOperator.PROP_IS_ONE_OF)
+              .setValueToMatch(
+                Prefab.ConfigValue
+                  .newBuilder()
+                  .setStringList(Prefab.StringList.newBuilder().addValues("pro"))
+              )
+          )
+          .setValue(sv("pro"))
+      )
+        .addValues(Prefab.ConditionalValue.newBuilder().setValue(sv("default")))
+    );
+
+    assertThat(element.getCompiledConfig(0).constantMatch(element)).isNull();
+  }
+
+  @Test
+  void itDoesNotFoldWeightedValues() {
+    ConfigElement element = element(
+      row(
+        Prefab.ConditionalValue
+          .newBuilder()
+          .setValue(
+            Prefab.ConfigValue
+              .newBuilder()
+              .setWeightedValues(
+                Prefab.WeightedValues
+                  .newBuilder()
+                  .addWeightedValues(
+                    Prefab.WeightedValue.newBuilder().setWeight(1).setValue(sv("a"))
+                  )
+              )
+          )
+      )
+    );
+
+    assertThat(element.getCompiledConfig(0).constantMatch(element)).isNull();
+  }
+
+  private static ConfigElement element(Prefab.ConfigRow.Builder... rows) {
+    Prefab.Config.Builder config = Prefab.Config.newBuilder().setKey("key");
+    for (Prefab.ConfigRow.Builder row : rows) {
+      config.addRows(row);
+    }
+    return new ConfigElement(config.build(), new Provenance(ConfigClient.Source.STREAMING));
+  }
+
+  private static Prefab.ConfigRow.Builder row(
+    Prefab.ConditionalValue.Builder conditionalValue
+  ) {
+    return Prefab.ConfigRow.newBuilder().addValues(conditionalValue);
+  }
+
+  private static Prefab.ConfigValue sv(String s) {
+    return Prefab.ConfigValue.newBuilder().setString(s).build();
+  }
+}
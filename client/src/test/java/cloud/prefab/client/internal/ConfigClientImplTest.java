@@ -3,6 +3,7 @@ package cloud.prefab.client.internal;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -224,7 +225,7 @@ class ConfigClientImplTest {
     void requestWithNoPassedContextHasAnEmptyLookupContext() {
       configClient.get("foobar");
       verify(updatingConfigResolver)
-        .getMatch("foobar", new LookupContext(PrefabContextSetReadable.EMPTY));
+        .getValueMatch("foobar", new LookupContext(PrefabContextSetReadable.EMPTY));
     }
 
     @Test
@@ -236,7 +237,8 @@ class ConfigClientImplTest {
         .build();
 
       configClient.get("foobar", prefabContext);
-      verify(updatingConfigResolver).getMatch("foobar", new LookupContext(prefabContext));
+      verify(updatingConfigResolver)
+        .getValueMatch("foobar", new LookupContext(prefabContext));
     }
 
     @Test
@@ -254,13 +256,13 @@ class ConfigClientImplTest {
       ) {
         configClient.get("foobar");
         verify(updatingConfigResolver)
-          .getMatch(eq("foobar"), lookupContextArgumentCaptor.capture());
+          .getValueMatch(eq("foobar"), lookupContextArgumentCaptor.capture());
       }
 
       LookupContext lookupContext = lookupContextArgumentCaptor.getValue();
       LookupContext expected = new LookupContext(PrefabContextSet.from(prefabContext));
 
-      assertThat(lookupContext).usingRecursiveComparison().isEqualTo(expected);
+      assertThat(lookupContext).isEqualTo(expected);
     }
 
     @Test
@@ -291,7 +293,7 @@ class ConfigClientImplTest {
       ) {
         configClient.get("foobar", localUserContext);
         verify(updatingConfigResolver)
-          .getMatch(eq("foobar"), lookupContextArgumentCaptor.capture());
+          .getValueMatch(eq("foobar"), lookupContextArgumentCaptor.capture());
       }
       LookupContext lookupContext = lookupContextArgumentCaptor.getValue();
 
@@ -307,7 +309,29 @@ class ConfigClientImplTest {
         )
       );
 
-      assertThat(lookupContext).usingRecursiveComparison().isEqualTo(expected);
+      assertThat(lookupContext).isEqualTo(expected);
+    }
+
+    @Test
+    void repeatedRequestsSeeChangesToTheStoredContext() {
+      PrefabContext user = PrefabContext.newBuilder("user").put("name", "james").build();
+      PrefabContext team = PrefabContext.newBuilder("team").put("name", "prefab").build();
+
+      try (
+        PrefabContextHelper.PrefabContextScope ignored = contextHelper.performWorkWithAutoClosingContext(
+          user
+        )
+      ) {
+        configClient.get("foobar");
+        configClient.get("foobar");
+        configClient.getContextStore().addContext(team);
+        configClient.get("foobar");
+      }
+
+      verify(updatingConfigResolver, times(2))
+        .getValueMatch("foobar", new LookupContext(user));
+      verify(updatingConfigResolver)
+        .getValueMatch("foobar", new LookupContext(PrefabContextSet.from(user, team)));
     }
   }
 }
@@ -112,7 +112,7 @@ class ConfigResolverTest {
       when(environmentVariableLookup.get(ENV_VAR_NAME))
         .thenReturn(Optional.of(envVarValue));
 
-      when(configRuleEvaluator.getMatch(key, LookupContext.EMPTY))
+      when(configRuleEvaluator.getValueMatch(key, LookupContext.EMPTY))
         .thenReturn(Optional.of(match(PROVIDED_CV, configWithValueType(key, valueType))));
     }
   }
@@ -143,7 +143,7 @@ class ConfigResolverTest {
           )
         );
 
-      when(configRuleEvaluator.getMatch(encryptionKeyConfigKey, LookupContext.EMPTY))
+      when(configRuleEvaluator.getValueMatch(encryptionKeyConfigKey, LookupContext.EMPTY))
         .thenReturn(
           Optional.of(
             match(
@@ -184,7 +184,7 @@ class ConfigResolverTest {
           )
         );
 
-      when(configRuleEvaluator.getMatch(encryptionKeyConfigKey, LookupContext.EMPTY))
+      when(configRuleEvaluator.getValueMatch(encryptionKeyConfigKey, LookupContext.EMPTY))
         .thenReturn(
           Optional.of(
             match(
@@ -223,7 +223,7 @@ class ConfigResolverTest {
           )
         );
 
-      when(configRuleEvaluator.getMatch(encryptionKeyConfigKey, LookupContext.EMPTY))
+      when(configRuleEvaluator.getValueMatch(encryptionKeyConfigKey, LookupContext.EMPTY))
         .thenReturn(Optional.empty());
 
       assertThatThrownBy(() ->
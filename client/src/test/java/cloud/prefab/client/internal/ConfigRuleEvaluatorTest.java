@@ -1,6 +1,7 @@
 package cloud.prefab.client.internal;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -8,7 +9,9 @@ import cloud.prefab.client.ConfigClient;
 import cloud.prefab.client.config.ConfigElement;
 import cloud.prefab.client.config.ConfigValueUtils;
 import cloud.prefab.client.config.EvaluatedCriterion;
+import cloud.prefab.client.config.Match;
 import cloud.prefab.client.config.Provenance;
+import cloud.prefab.client.exceptions.SegmentCycleException;
 import cloud.prefab.context.PrefabContext;
 import cloud.prefab.context.PrefabContextSet;
 import cloud.prefab.context.PrefabContextSetReadable;
@@ -774,6 +777,18 @@ public class ConfigRuleEvaluatorTest {
         ConfigValueUtils.from("2024-01-01T00:00:00z"),
         false
       ),
+      Arguments.of(
+        ConfigValueUtils.from("2024-01-01T00:00:00.000500z"),
+        Prefab.Criterion.CriterionOperator.PROP_AFTER,
+        ConfigValueUtils.from("2024-01-01T00:00:00.000100z"),
+        true
+      ),
+      Arguments.of(
+        ConfigValueUtils.from("2024-01-01T00:00:00.000100z"),
+        Prefab.Criterion.CriterionOperator.PROP_BEFORE,
+        ConfigValueUtils.from("2024-01-01T00:00:00.000500z"),
+        true
+      ),
       Arguments.of(
         ConfigValueUtils.from(
           ZonedDateTime.parse("2024-01-02T00:00:00z").toInstant().toEpochMilli()
@@ -891,6 +906,295 @@ public class ConfigRuleEvaluatorTest {
       .isEqualTo(expectedMatch);
   }
 
+  @Test
+  void itMatchesListValuedPropertiesAgainstOneOf() {
+    Prefab.ConfigValue allowList = ConfigValueUtils.from(List.of("beta", "internal"));
+    Prefab.Criterion oneOf = Prefab.Criterion
+      .newBuilder()
+      .setPropertyName("groups")
+      .setOperator(Prefab.Criterion.CriterionOperator.PROP_IS_ONE_OF)
+      .setValueToMatch(allowList)
+      .build();
+    Prefab.Criterion notOneOf = oneOf
+      .toBuilder()
+      .setOperator(Prefab.Criterion.CriterionOperator.PROP_IS_NOT_ONE_OF)
+      .build();
+
+    LookupContext overlapping = singleValueLookupContext(
+      "groups",
+      ConfigValueUtils.from(List.of("alpha", "internal"))
+    );
+    LookupContext disjoint = singleValueLookupContext(
+      "groups",
+      ConfigValueUtils.from(List.of("alpha", "gamma"))
+    );
+    LookupContext emptyList = singleValueLookupContext(
+      "groups",
+      ConfigValueUtils.from(List.of())
+    );
+
+    assertThat(evaluator.evaluateCriterionMatch(oneOf, overlapping).get(0).isMatch())
+      .isTrue();
+    assertThat(evaluator.evaluateCriterionMatch(notOneOf, overlapping).get(0).isMatch())
+      .isFalse();
+    assertThat(evaluator.evaluateCriterionMatch(oneOf, disjoint).get(0).isMatch())
+      .isFalse();
+    assertThat(evaluator.evaluateCriterionMatch(notOneOf, disjoint).get(0).isMatch())
+      .isTrue();
+    assertThat(evaluator.evaluateCriterionMatch(oneOf, emptyList).get(0).isMatch())
+      .isFalse();
+    assertThat(evaluator.evaluateCriterionMatch(notOneOf, emptyList).get(0).isMatch())
+      .isTrue();
+  }
+
+  @Test
+  void itEvaluatesCompiledRowsWithProjectEnvRowFirst() {
+    when(mockConfigStoreImpl.getProjectEnvironmentId()).thenReturn(5L);
+    ConfigElement configElement = new ConfigElement(
+      Prefab.Config
+        .newBuilder()
+        .setKey("env-ordered")
+        .addRows(
+          Prefab.ConfigRow
+            .newBuilder()
+            .addValues(Prefab.ConditionalValue.newBuilder().setValue(sv("default")))
+        )
+        .addRows(
+          Prefab.ConfigRow
+            .newBuilder()
+            .setProjectEnvId(5L)
+            .addValues(
+              Prefab.ConditionalValue
+                .newBuilder()
+                .addCriteria(
+                  Prefab.Criterion
+                    .newBuilder()
+                    .setPropertyName("group")
+                    .setOperator(Prefab.Criterion.CriterionOperator.PROP_IS_ONE_OF)
+                    .setValueToMatch(
+                      Prefab.ConfigValue
+                        .newBuilder()
+                        .setStringList(Prefab.StringList.newBuilder().addValues("beta"))
+                    )
+                )
+                .setValue(sv("env"))
+            )
+        )
+        .build(),
+      new Provenance(ConfigClient.Source.STREAMING)
+    );
+
+    Match envMatch = evaluator
+      .getMatch(configElement, singleValueLookupContext("group", sv("beta")))
+      .orElseThrow();
+    assertThat(envMatch.getConfigValue()).isEqualTo(sv("env"));
+    assertThat(envMatch.getRowIndex()).isEqualTo(0);
+    assertThat(envMatch.getEnvId()).contains(5L);
+
+    Match defaultMatch = evaluator
+      .getMatch(configElement, singleValueLookupContext("group", sv("alpha")))
+      .orElseThrow();
+    assertThat(defaultMatch.getConfigValue()).isEqualTo(sv("default"));
+    assertThat(defaultMatch.getRowIndex()).isEqualTo(1);
+    assertThat(defaultMatch.getEnvId()).isEmpty();
+  }
+
+  @Test
+  void valueMatchAgreesWithExplainedMatchWithoutCriteria() {
+    when(mockConfigStoreImpl.getElement("segment")).thenReturn(segmentTestData());
+    when(mockConfigStoreImpl.getElement("flag"))
+      .thenReturn(
+        new ConfigElement(
+          Prefab.Config
+            .newBuilder()
+            .setKey("flag")
+            .addRows(
+              Prefab.ConfigRow
+                .newBuilder()
+                .addValues(
+                  Prefab.ConditionalValue
+                    .newBuilder()
+                    .addCriteria(
+                      Prefab.Criterion
+                        .newBuilder()
+                        .setOperator(Prefab.Criterion.CriterionOperator.IN_SEG)
+                        .setValueToMatch(sv("segment"))
+                    )
+                    .setValue(sv("in-segment"))
+                )
+                .addValues(Prefab.ConditionalValue.newBuilder().setValue(sv("fallback")))
+            )
+            .build(),
+          new Provenance(ConfigClient.Source.STREAMING)
+        )
+      );
+
+    for (String group : List.of("beta", "alpha")) {
+      Match explained = evaluator
+        .getMatch("flag", singleValueLookupContext("group", sv(group)))
+        .orElseThrow();
+      Match valueOnly = evaluator
+        .getValueMatch("flag", singleValueLookupContext("group", sv(group)))
+        .orElseThrow();
+
+      assertThat(valueOnly.getConfigValue()).isEqualTo(explained.getConfigValue());
+      assertThat(valueOnly.getRowIndex()).isEqualTo(explained.getRowIndex());
+      assertThat(valueOnly.getConditionalValueIndex())
+        .isEqualTo(explained.getConditionalValueIndex());
+      assertThat(valueOnly.getEvaluatedCriterion()).isEmpty();
+    }
+  }
+
+  @Test
+  void itMemoizesSegmentResultsForAnEvaluation() {
+    when(mockConfigStoreImpl.getElement("segment")).thenReturn(segmentTestData());
+    LookupContext lookupContext = singleValueLookupContext("group", sv("beta"));
+    EvaluationStack evaluation = new EvaluationStack();
+
+    Match first = evaluator
+      .getSegmentMatch("segment", lookupContext, evaluation, true)
+      .orElseThrow();
+    Match second = evaluator
+      .getSegmentMatch("segment", lookupContext, evaluation, true)
+      .orElseThrow();
+    assertThat(second).isSameAs(first);
+
+    // another evaluation with the same lookup context starts afresh
+    Match otherEvaluation = evaluator
+      .getSegmentMatch("segment", lookupContext, new EvaluationStack(), true)
+      .orElseThrow();
+    assertThat(otherEvaluation).isNotSameAs(first);
+
+    // a new snapshot replaces the segment element, so the memoized result is not reused
+    when(mockConfigStoreImpl.getElement("segment")).thenReturn(segmentTestData());
+    Match afterUpdate = evaluator
+      .getSegmentMatch("segment", lookupContext, evaluation, true)
+      .orElseThrow();
+    assertThat(afterUpdate).isNotSameAs(first);
+    assertThat(afterUpdate.getConfigValue()).isEqualTo(first.getConfigValue());
+  }
+
+  @Test
+  void itSharesSegmentResultsAcrossLookupsWithTheSameContextAndSnapshot() {
+    when(mockConfigStoreImpl.getElement("segment")).thenReturn(segmentTestData());
+    LookupContext lookupContext = singleValueLookupContext("group", sv("beta"));
+    MergedConfigData data = new MergedConfigData(
+      Collections.emptyMap(),
+      0,
+      PrefabContextSetReadable.EMPTY,
+      PrefabContextSetReadable.EMPTY
+    );
+
+    Match first = evaluator
+      .getSegmentMatch(
+        "segment",
+        lookupContext,
+        new EvaluationStack(lookupContext.getSharedSegmentResults(data)),
+        true
+      )
+      .orElseThrow();
+    LookupContext copy = lookupContext.forNewLookup();
+    Match shared = evaluator
+      .getSegmentMatch(
+        "segment",
+        copy,
+        new EvaluationStack(copy.getSharedSegmentResults(data)),
+        true
+      )
+      .orElseThrow();
+    assertThat(shared).isSameAs(first);
+
+    // another snapshot starts afresh
+    MergedConfigData nextData = new MergedConfigData(
+      Collections.emptyMap(),
+      0,
+      PrefabContextSetReadable.EMPTY,
+      PrefabContextSetReadable.EMPTY
+    );
+    Match afterUpdate = evaluator
+      .getSegmentMatch(
+        "segment",
+        lookupContext,
+        new EvaluationStack(lookupContext.getSharedSegmentResults(nextData)),
+        true
+      )
+      .orElseThrow();
+    assertThat(afterUpdate).isNotSameAs(first);
+  }
+
+  @Test
+  void itDoesNotMemoizeSegmentsReadingTheCurrentTime() {
+    ConfigElement timeSegment = new ConfigElement(
+      Prefab.Config
+        .newBuilder()
+        .setKey("time-segment")
+        .addRows(
+          Prefab.ConfigRow
+            .newBuilder()
+            .addValues(
+              Prefab.ConditionalValue
+                .newBuilder()
+                .addCriteria(
+                  Prefab.Criterion
+                    .newBuilder()
+                    .setPropertyName(ConfigRuleEvaluator.CURRENT_TIME_KEY)
+                    .setOperator(Prefab.Criterion.CriterionOperator.PROP_AFTER)
+                    .setValueToMatch(sv("2024-01-01T00:00:00z"))
+                )
+                .setValue(Prefab.ConfigValue.newBuilder().setBool(true))
+            )
+        )
+        .build(),
+      new Provenance(ConfigClient.Source.STREAMING)
+    );
+    when(mockConfigStoreImpl.getElement("time-segment")).thenReturn(timeSegment);
+    LookupContext lookupContext = singleValueLookupContext("group", sv("beta"));
+    EvaluationStack evaluation = new EvaluationStack();
+
+    Match first = evaluator
+      .getSegmentMatch("time-segment", lookupContext, evaluation, true)
+      .orElseThrow();
+    Match second = evaluator
+      .getSegmentMatch("time-segment", lookupContext, evaluation, true)
+      .orElseThrow();
+    assertThat(second).isNotSameAs(first);
+  }
+
+  @Test
+  void itFailsFastOnSegmentCycles() {
+    ConfigElement loopingSegment = new ConfigElement(
+      Prefab.Config
+        .newBuilder()
+        .setKey("looping-segment")
+        .addRows(
+          Prefab.ConfigRow
+            .newBuilder()
+            .addValues(
+              Prefab.ConditionalValue
+                .newBuilder()
+                .addCriteria(
+                  Prefab.Criterion
+                    .newBuilder()
+                    .setOperator(Prefab.Criterion.CriterionOperator.IN_SEG)
+                    .setValueToMatch(sv("looping-segment"))
+                )
+                .setValue(Prefab.ConfigValue.newBuilder().setBool(true))
+            )
+        )
+        .build(),
+      new Provenance(ConfigClient.Source.STREAMING)
+    );
+    when(mockConfigStoreImpl.getElement("looping-segment")).thenReturn(loopingSegment);
+
+    assertThatThrownBy(() ->
+        evaluator.getMatch(
+          "looping-segment",
+          singleValueLookupContext("group", sv("beta"))
+        )
+      )
+      .isInstanceOf(SegmentCycleException.class);
+  }
+
   private Prefab.ConfigValue sv(String s) {
     return Prefab.ConfigValue.newBuilder().setString(s).build();
   }
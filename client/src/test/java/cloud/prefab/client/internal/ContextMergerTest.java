@@ -3,6 +3,7 @@ package cloud.prefab.client.internal;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.*;
 
+import cloud.prefab.context.FrozenPrefabContextSet;
 import cloud.prefab.context.PrefabContext;
 import cloud.prefab.context.PrefabContextSet;
 import cloud.prefab.context.PrefabContextSetReadable;
@@ -73,7 +74,7 @@ class ContextMergerTest {
   @Test
   void itMergesGlobalWithApiInCorrectOrderWithoutPassedOrCurrentContext() {
     PrefabContextSetReadable merged = ContextMerger.merge(GLOBAL, API, CURRENT, PASSED);
-    assertThat(merged)
+    assertThat(PrefabContextSet.convert(merged))
       .isEqualTo(
         PASSED
           .addContext(GLOBAL.getByName("global").get())
@@ -91,6 +92,45 @@ class ContextMergerTest {
       PrefabContextSetReadable.EMPTY
     );
 
-    assertThat(merged).isEqualTo(API.addContext(GLOBAL.getByName("global").get()));
+    assertThat(PrefabContextSet.convert(merged))
+      .isEqualTo(API.addContext(GLOBAL.getByName("global").get()));
+  }
+
+  @Test
+  void itReturnsTheOnlyNonEmptyImmutableContextWithoutCopying() {
+    FrozenPrefabContextSet current = CURRENT.freeze();
+    assertThat(ContextMerger.merge(null, PrefabContextSetReadable.EMPTY, current, null))
+      .isSameAs(current);
+  }
+
+  @Test
+  void itFreezesMutableContextSets() {
+    PrefabContextSet passed = PrefabContextSet.from(
+      PrefabContext.newBuilder("user").put("key", "before").build()
+    );
+    PrefabContextSetReadable merged = ContextMerger.merge(null, passed);
+
+    passed.addContext(PrefabContext.newBuilder("user").put("key", "after").build());
+
+    assertThat(merged).isInstanceOf(FrozenPrefabContextSet.class);
+    assertThat(merged.getByName("user").get().getProperties().get("key").getString())
+      .isEqualTo("before");
+  }
+
+  @Test
+  void itLooksUpByNameThroughTheLayers() {
+    PrefabContextSetReadable merged = ContextMerger.merge(
+      PrefabContextSet.from(
+        PrefabContext.newBuilder("user").put("key", "global").build(),
+        PrefabContext.newBuilder("device").put("os", "linux").build()
+      ),
+      PrefabContext.newBuilder("User").put("key", "passed").build()
+    );
+
+    assertThat(merged.getByName("user").get().getProperties().get("key").getString())
+      .isEqualTo("passed");
+    assertThat(merged.getByName("device")).isPresent();
+    assertThat(merged.getByName("team")).isEmpty();
+    assertThat(merged.getContexts()).hasSize(2);
   }
 }
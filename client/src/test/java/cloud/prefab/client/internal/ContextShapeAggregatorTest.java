@@ -3,6 +3,8 @@ package cloud.prefab.client.internal;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
@@ -82,4 +84,52 @@ class ContextShapeAggregatorTest {
           .build()
       );
   }
+
+  @Test
+  void itBuildsEachShapeOnce() {
+    PrefabContext gold = spy(
+      PrefabContext.newBuilder("user").put("tier", "gold").put("age", 44).build()
+    );
+    PrefabContext silver = spy(
+      PrefabContext.newBuilder("user").put("age", 100).put("tier", "silver").build()
+    );
+
+    aggregator.reportContextUsage(gold);
+    aggregator.reportContextUsage(gold);
+    aggregator.reportContextUsage(silver);
+
+    verify(gold, times(1)).getShape();
+    verify(silver, never()).getShape();
+    assertThat(aggregator.getShapes().getShapesList())
+      .containsExactly(
+        Prefab.ContextShape
+          .newBuilder()
+          .setName("user")
+          .putFieldTypes("age", Prefab.ConfigValue.TypeCase.INT.getNumber())
+          .putFieldTypes("tier", Prefab.ConfigValue.TypeCase.STRING.getNumber())
+          .build()
+      );
+  }
+
+  @Test
+  void itRecordsTheLatestShapeWhenAnEarlierOneComesBack() {
+    PrefabContext intAge = spy(PrefabContext.newBuilder("user").put("age", 44).build());
+    PrefabContext stringAge = spy(
+      PrefabContext.newBuilder("user").put("age", "44").build()
+    );
+
+    aggregator.reportContextUsage(intAge);
+    aggregator.reportContextUsage(stringAge);
+    aggregator.reportContextUsage(intAge);
+
+    verify(intAge, times(1)).getShape();
+    assertThat(aggregator.getShapes().getShapesList())
+      .containsExactly(
+        Prefab.ContextShape
+          .newBuilder()
+          .setName("user")
+          .putFieldTypes("age", Prefab.ConfigValue.TypeCase.INT.getNumber())
+          .build()
+      );
+  }
 }
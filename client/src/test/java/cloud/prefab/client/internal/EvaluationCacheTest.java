@@ -0,0 +1,260 @@
+package cloud.prefab.client.internal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import cloud.prefab.client.ConfigClient;
+import cloud.prefab.client.config.ConfigElement;
+import cloud.prefab.client.config.Match;
+import cloud.prefab.client.config.Provenance;
+import cloud.prefab.context.PrefabContext;
+import cloud.prefab.context.PrefabContextSetReadable;
+import cloud.prefab.domain.Prefab;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class EvaluationCacheTest {
+
+  private final AtomicInteger evaluations = new AtomicInteger();
+
+  @Test
+  void itSharesResultsAcrossContextsWithTheSameReferencedValues() {
+    EvaluationCache cache = new EvaluationCache(
+      Map.of("flag", element("flag", criterion("user.plan"), sv("on"))),
+      0,
+      100
+    );
+
+    lookup(cache, "flag", context("pro", "1"));
+    lookup(cache, "flag", context("pro", "2"));
+    assertThat(evaluations.get()).isEqualTo(1);
+
+    lookup(cache, "flag", context("free", "1"));
+    assertThat(evaluations.get()).isEqualTo(2);
+    assertThat(cache.size()).isEqualTo(2);
+  }
+
+  @Test
+  void itFollowsSegmentsForReferencedProperties() {
+    Prefab.Criterion inSegment = Prefab.Criterion
+      .newBuilder()
+      .setOperator(Prefab.Criterion.CriterionOperator.IN_SEG)
+      .setValueToMatch(sv("segment"))
+      .build();
+    EvaluationCache cache = new EvaluationCache(
+      Map.of(
+        "flag",
+        element("flag", inSegment, sv("on")),
+        "segment",
+        element("segment", criterion("user.id"), bool(true))
+      ),
+      0,
+      100
+    );
+
+    lookup(cache, "flag", context("pro", "1"));
+    lookup(cache, "flag", context("free", "1"));
+    assertThat(evaluations.get()).isEqualTo(1);
+
+    lookup(cache, "flag", context("pro", "2"));
+    assertThat(evaluations.get()).isEqualTo(2);
+  }
+
+  @Test
+  void itBypassesConfigsReadingTheCurrentTime() {
+    EvaluationCache cache = new EvaluationCache(
+      Map.of(
+        "flag",
+        element("flag", criterion(ConfigRuleEvaluator.CURRENT_TIME_KEY), sv("on"))
+      ),
+      0,
+      100
+    );
+
+    lookup(cache, "flag", context("pro", "1"));
+    lookup(cache, "flag", context("pro", "1"));
+    assertThat(evaluations.get()).isEqualTo(2);
+    assertThat(cache.size()).isZero();
+  }
+
+  @Test
+  void itBypassesConfigsReadingTheContextKey() {
+    EvaluationCache cache = new EvaluationCache(
+      Map.of("flag", element("flag", criterion("user.key"), sv("on"))),
+      0,
+      100
+    );
+
+    lookup(cache, "flag", context("pro", "1"));
+    lookup(cache, "flag", context("pro", "1"));
+    assertThat(evaluations.get()).isEqualTo(2);
+    assertThat(cache.size()).isZero();
+  }
+
+  @Test
+  void itBypassesWeightedValues() {
+    Prefab.ConfigValue weighted = Prefab.ConfigValue
+      .newBuilder()
+      .setWeightedValues(
+        Prefab.WeightedValues
+          .newBuilder()
+          .setHashByPropertyName("user.key")
+          .addWeightedValues(
+            Prefab.WeightedValue.newBuilder().setWeight(1).setValue(sv("a"))
+          )
+          .addWeightedValues(
+            Prefab.WeightedValue.newBuilder().setWeight(1).setValue(sv("b"))
+          )
+      )
+      .build();
+    EvaluationCache cache = new EvaluationCache(
+      Map.of("flag", element("flag", criterion("user.plan"), weighted)),
+      0,
+      100
+    );
+
+    // hashed per user, so an entry would rarely be shared
+    lookup(cache, "flag", context("pro", "1"));
+    lookup(cache, "flag", context("pro", "1"));
+    assertThat(evaluations.get()).isEqualTo(2);
+    assertThat(cache.size()).isZero();
+  }
+
+  @Test
+  void itCanBeDisabled() {
+    EvaluationCache cache = new EvaluationCache(
+      Map.of("flag", element("flag", criterion("user.plan"), sv("on"))),
+      0,
+      0
+    );
+
+    lookup(cache, "flag", context("pro", "1"));
+    lookup(cache, "flag", context("pro", "1"));
+    assertThat(evaluations.get()).isEqualTo(2);
+    assertThat(cache.size()).isZero();
+  }
+
+  @Test
+  void itNeverServesResultsFromAnEarlierSnapshot() {
+    MergedConfigData before = snapshot(sv("before"));
+    MergedConfigData after = snapshot(sv("after"));
+
+    // with room for one entry each new plan evicts the previous one
+    for (String plan : new String[] { "pro", "free", "pro" }) {
+      assertThat(evaluate(before, context(plan, "1"))).isEqualTo(sv("before"));
+    }
+    assertThat(before.getEvaluationCache().size()).isEqualTo(1);
+
+    for (String plan : new String[] { "pro", "free", "pro" }) {
+      assertThat(evaluate(after, context(plan, "1"))).isEqualTo(sv("after"));
+    }
+    assertThat(evaluate(before, context("free", "1"))).isEqualTo(sv("before"));
+  }
+
+  private static MergedConfigData snapshot(Prefab.ConfigValue value) {
+    return new MergedConfigData(
+      Map.of("flag", element("flag", criterion("user.plan"), value)),
+      0,
+      PrefabContextSetReadable.EMPTY,
+      PrefabContextSetReadable.EMPTY,
+      1
+    );
+  }
+
+  private static Prefab.ConfigValue evaluate(
+    MergedConfigData data,
+    LookupContext lookupContext
+  ) {
+    ConfigElement element = data.getConfigs().get("flag");
+    Prefab.ConfigValue value = element
+      .getConfig()
+      .getRows(0)
+      .getValues(0)
+      .getValue();
+    return data
+      .getEvaluationCache()
+      .getValueMatch(
+        "flag",
+        lookupContext,
+        () ->
+          Optional.of(
+            new Match(
+              value,
+              element,
+              List.of(),
+              0,
+              0,
+              Optional.empty(),
+              Optional.empty()
+            )
+          )
+      )
+      .orElseThrow()
+      .getConfigValue();
+  }
+
+  private Optional<Match> lookup(
+    EvaluationCache cache,
+    String key,
+    LookupContext lookupContext
+  ) {
+    return cache.getValueMatch(
+      key,
+      lookupContext,
+      () -> {
+        evaluations.incrementAndGet();
+        return Optional.empty();
+      }
+    );
+  }
+
+  private static LookupContext context(String plan, String id) {
+    return new LookupContext(
+      PrefabContext.newBuilder("user").put("plan", plan).put("id", id).build()
+    );
+  }
+
+  private static ConfigElement element(
+    String key,
+    Prefab.Criterion criterion,
+    Prefab.ConfigValue value
+  ) {
+    return new ConfigElement(
+      Prefab.Config
+        .newBuilder()
+        .setKey(key)
+        .addRows(
+          Prefab.ConfigRow
+            .newBuilder()
+            .addValues(
+              Prefab.ConditionalValue.newBuilder().addCriteria(criterion).setValue(value)
+            )
+        )
+        .build(),
+      new Provenance(ConfigClient.Source.STREAMING)
+    );
+  }
+
+  private static Prefab.Criterion criterion(String propertyName) {
+    return Prefab.Criterion
+      .newBuilder()
+      .setPropertyName(propertyName)
+      .setOperator(Prefab.Criterion.CriterionOperator.PROP_IS_ONE_OF)
+      .setValueToMatch(
+        Prefab.ConfigValue
+          .newBuilder()
+          .setStringList(Prefab.StringList.newBuilder().addValues("pro"))
+      )
+      .build();
+  }
+
+  private static Prefab.ConfigValue sv(String s) {
+    return Prefab.ConfigValue.newBuilder().setString(s).build();
+  }
+
+  private static Prefab.ConfigValue bool(boolean b) {
+    return Prefab.ConfigValue.newBuilder().setBool(b).build();
+  }
+}
@@ -5,6 +5,11 @@ import static org.mockito.Mockito.when;
 
 import cloud.prefab.domain.Prefab;
 import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.assertj.core.data.MapEntry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -89,4 +94,81 @@ class LoggerStatsAggregatorTest {
     assertThat(moreCounts.getStartTime()).isEqualTo(2);
     assertThat(moreCounts.getLoggerMap()).isEmpty();
   }
+
+  @Test
+  void itCountsFromManyThreads() throws Exception {
+    ExecutorService executorService = Executors.newFixedThreadPool(4);
+    List<Future<?>> futures = new ArrayList<>();
+    for (int t = 0; t < 4; t++) {
+      futures.add(
+        executorService.submit(() -> {
+          for (int i = 0; i < 10_000; i++) {
+            instance.reportLoggerUsage(LOGGER_A, Prefab.LogLevel.INFO, 1);
+            instance.reportLoggerUsage(LOGGER_B, Prefab.LogLevel.WARN, 2);
+          }
+        })
+      );
+    }
+    for (Future<?> future : futures) {
+      future.get();
+    }
+    executorService.shutdown();
+
+    assertThat(instance.getAndResetStats().getLoggerMap())
+      .containsOnly(
+        MapEntry.entry(
+          LOGGER_A,
+          Prefab.Logger.newBuilder().setLoggerName(LOGGER_A).setInfos(40_000).build()
+        ),
+        MapEntry.entry(
+          LOGGER_B,
+          Prefab.Logger.newBuilder().setLoggerName(LOGGER_B).setWarns(80_000).build()
+        )
+      );
+  }
+
+  @Test
+  void itReportsHandedBackCountsWithTheNextWindow() {
+    instance.reportLoggerUsage(LOGGER_A, Prefab.LogLevel.ERROR, 3);
+    LoggerStatsAggregator.LogCounts counts = instance.getAndResetStats();
+
+    instance.setStats(counts);
+    instance.reportLoggerUsage(LOGGER_A, Prefab.LogLevel.ERROR, 4);
+
+    LoggerStatsAggregator.LogCounts nextCounts = instance.getAndResetStats();
+    assertThat(nextCounts.getStartTime()).isEqualTo(1L);
+    assertThat(nextCounts.getLoggerMap())
+      .containsOnly(
+        MapEntry.entry(
+          LOGGER_A,
+          Prefab.Logger.newBuilder().setLoggerName(LOGGER_A).setErrors(7).build()
+        )
+      );
+  }
+
+  @Test
+  void itDropsLoggersIdleForAWholeWindow() {
+    when(clock.millis()).thenReturn(1L, 2L, 3L, 4L, 5L);
+    instance = new LoggerStatsAggregator(clock);
+    instance.reportLoggerUsage(LOGGER_A, Prefab.LogLevel.INFO, 1);
+    instance.reportLoggerUsage(LOGGER_B, Prefab.LogLevel.INFO, 1);
+    assertThat(instance.getAndResetStats().getLoggerMap())
+      .containsOnlyKeys(LOGGER_A, LOGGER_B);
+
+    instance.reportLoggerUsage(LOGGER_A, Prefab.LogLevel.INFO, 1);
+    assertThat(instance.getAndResetStats().getLoggerMap()).containsOnlyKeys(LOGGER_A);
+    assertThat(instance.getLoggerCount()).isEqualTo(2);
+
+    instance.reportLoggerUsage(LOGGER_A, Prefab.LogLevel.INFO, 1);
+    assertThat(instance.getAndResetStats().getLoggerMap()).containsOnlyKeys(LOGGER_A);
+    assertThat(instance.getLoggerCount()).isEqualTo(1);
+
+    // a dropped logger is counted again when it is next used
+    instance.reportLoggerUsage(LOGGER_B, Prefab.LogLevel.WARN, 2);
+    assertThat(instance.getAndResetStats().getLoggerMap())
+      .containsEntry(
+        LOGGER_B,
+        Prefab.Logger.newBuilder().setLoggerName(LOGGER_B).setWarns(2).build()
+      );
+  }
 }
@@ -97,6 +97,45 @@ class LookupContextTest {
       );
   }
 
+  @Test
+  void itLooksUpQualifiedNamesWithoutExpanding() {
+    LookupContext lookupContext = new LookupContext(
+      PrefabContextSet.from(
+        PrefabContext.fromMap("User", Map.of("email", getStringConfigValue("a@b.com"))),
+        PrefabContext.unnamedFromMap(Map.of("plan", getStringConfigValue("pro")))
+      )
+    );
+
+    assertThat(lookupContext.getExpandedValue("User.email"))
+      .isEqualTo(getStringConfigValue("a@b.com"));
+    assertThat(lookupContext.getExpandedValue("plan"))
+      .isEqualTo(getStringConfigValue("pro"));
+    assertThat(lookupContext.getExpandedValue("user.email")).isNull();
+    assertThat(lookupContext.getExpandedValue("email")).isNull();
+  }
+
+  @Test
+  void itLooksUpQualifiedNamesThroughLayersWithoutMerging() {
+    LookupContext lookupContext = new LookupContext(
+      ContextMerger.merge(
+        PrefabContextSet.from(
+          PrefabContext.fromMap("user", Map.of("email", getStringConfigValue("a@b.com"))),
+          PrefabContext.fromMap("device", Map.of("os", getStringConfigValue("linux")))
+        ),
+        PrefabContext.fromMap("user", Map.of("plan", getStringConfigValue("pro")))
+      )
+    );
+
+    assertThat(lookupContext.getExpandedValue("user.plan"))
+      .isEqualTo(getStringConfigValue("pro"));
+    assertThat(lookupContext.getExpandedValue("device.os"))
+      .isEqualTo(getStringConfigValue("linux"));
+    // the passed user replaces the global one as a whole
+    assertThat(lookupContext.getExpandedValue("user.email")).isNull();
+    assertThat(lookupContext.getExpandedProperties())
+      .containsOnlyKeys("user.plan", "device.os");
+  }
+
   @Test
   void equalsAndHashCodeWorkWithDifferentContextTypeArgs() {
     PrefabContext context = PrefabContext
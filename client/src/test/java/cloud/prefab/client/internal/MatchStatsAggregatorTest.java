@@ -242,4 +242,198 @@ class MatchStatsAggregatorTest {
      */
 
   }
+
+  @Test
+  void itCountsRepeatedMatchesUnderOneCounter() {
+    Match match = new Match(
+      ConfigValueUtils.from(true),
+      new ConfigElement(TF_CONFIG_1, new Provenance(ConfigClient.Source.STREAMING)),
+      Collections.emptyList(),
+      0,
+      0,
+      Optional.empty(),
+      Optional.empty()
+    );
+    for (int i = 0; i < 3; i++) {
+      matchStatsAggregator.recordMatch(match, 100 + i);
+    }
+
+    MatchStatsAggregator.StatsAggregate statsAggregate = matchStatsAggregator.getAndResetStatsAggregate();
+    assertThat(statsAggregate.getMinTime()).isEqualTo(100);
+    assertThat(statsAggregate.getMaxTime()).isEqualTo(102);
+    assertThat(statsAggregate.getCounterData())
+      .isEqualTo(
+        Map.of(
+          new MatchStatsAggregator.ConfigKeyAndTypeKey(
+            "the.key",
+            Prefab.ConfigType.FEATURE_FLAG
+          ),
+          Map.of(
+            new MatchStatsAggregator.CountKey(
+              1,
+              ConfigValueUtils.from(true),
+              0,
+              0,
+              0,
+              Optional.empty()
+            ),
+            new MatchStatsAggregator.Counter(3)
+          )
+        )
+      );
+    assertThat(matchStatsAggregator.getAndResetStatsAggregate().getCounterData())
+      .isEmpty();
+
+    // an aggregate that couldn't be uploaded is added to the next one
+    matchStatsAggregator.restoreStatsAggregate(statsAggregate);
+    matchStatsAggregator.recordMatch(match, 103);
+    assertThat(
+      matchStatsAggregator
+        .getAndResetStatsAggregate()
+        .getCounterData()
+        .get(
+          new MatchStatsAggregator.ConfigKeyAndTypeKey(
+            "the.key",
+            Prefab.ConfigType.FEATURE_FLAG
+          )
+        )
+        .values()
+    )
+      .containsExactly(new MatchStatsAggregator.Counter(4));
+  }
+
+  @Test
+  void itCountsEachVersionOfAConfigAcrossReloads() {
+    // a reloaded copy of the first version, then a new version
+    for (Prefab.Config config : new Prefab.Config[] {
+      TF_CONFIG_1,
+      TF_CONFIG_1.toBuilder().build(),
+      TF_CONFIG_2,
+    }) {
+      matchStatsAggregator.recordMatch(trueMatch(config), 100);
+    }
+
+    MatchStatsAggregator.ConfigKeyAndTypeKey configKeyAndTypeKey = new MatchStatsAggregator.ConfigKeyAndTypeKey(
+      "the.key",
+      Prefab.ConfigType.FEATURE_FLAG
+    );
+    assertThat(
+      matchStatsAggregator
+        .getAndResetStatsAggregate()
+        .getCounterData()
+        .get(configKeyAndTypeKey)
+    )
+      .isEqualTo(
+        Map.of(
+          new MatchStatsAggregator.CountKey(
+            1,
+            ConfigValueUtils.from(true),
+            0,
+            0,
+            0,
+            Optional.empty()
+          ),
+          new MatchStatsAggregator.Counter(2),
+          new MatchStatsAggregator.CountKey(
+            2,
+            ConfigValueUtils.from(true),
+            0,
+            0,
+            0,
+            Optional.empty()
+          ),
+          new MatchStatsAggregator.Counter(1)
+        )
+      );
+
+    // the first version's counters were dropped with that flush
+    matchStatsAggregator.recordMatch(trueMatch(TF_CONFIG_2), 101);
+    assertThat(
+      matchStatsAggregator
+        .getAndResetStatsAggregate()
+        .getCounterData()
+        .get(configKeyAndTypeKey)
+    )
+      .isEqualTo(
+        Map.of(
+          new MatchStatsAggregator.CountKey(
+            2,
+            ConfigValueUtils.from(true),
+            0,
+            0,
+            0,
+            Optional.empty()
+          ),
+          new MatchStatsAggregator.Counter(1)
+        )
+      );
+  }
+
+  private static Match trueMatch(Prefab.Config config) {
+    return new Match(
+      ConfigValueUtils.from(true),
+      new ConfigElement(config, new Provenance(ConfigClient.Source.STREAMING)),
+      Collections.emptyList(),
+      0,
+      0,
+      Optional.empty(),
+      Optional.empty()
+    );
+  }
+
+  @Test
+  void itCountsValuesThatAreNotAllowableValuesSeparately() {
+    ConfigElement configElement = new ConfigElement(
+      TF_CONFIG_1.toBuilder().setConfigType(Prefab.ConfigType.CONFIG).build(),
+      new Provenance(ConfigClient.Source.STREAMING)
+    );
+    for (String value : new String[] { "a", "b", "a" }) {
+      matchStatsAggregator.recordMatch(
+        new Match(
+          ConfigValueUtils.from(value),
+          configElement,
+          Collections.emptyList(),
+          0,
+          0,
+          Optional.empty(),
+          Optional.empty()
+        ),
+        100
+      );
+    }
+
+    assertThat(
+      matchStatsAggregator
+        .getAndResetStatsAggregate()
+        .getCounterData()
+        .get(
+          new MatchStatsAggregator.ConfigKeyAndTypeKey(
+            "the.key",
+            Prefab.ConfigType.CONFIG
+          )
+        )
+    )
+      .isEqualTo(
+        Map.of(
+          new MatchStatsAggregator.CountKey(
+            1,
+            ConfigValueUtils.from("a"),
+            -1,
+            0,
+            0,
+            Optional.empty()
+          ),
+          new MatchStatsAggregator.Counter(2),
+          new MatchStatsAggregator.CountKey(
+            1,
+            ConfigValueUtils.from("b"),
+            -1,
+            0,
+            0,
+            Optional.empty()
+          ),
+          new MatchStatsAggregator.Counter(1)
+        )
+      );
+  }
 }
@@ -0,0 +1,68 @@
+package cloud.prefab.client.internal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class MultiPatternMatcherTest {
+
+  @Test
+  void itMatchesPrefixes() {
+    MultiPatternMatcher matcher = MultiPatternMatcher.prefixes(
+      List.of("https://", "http://", "ftp")
+    );
+    assertThat(matcher.matches("https://example.com")).isTrue();
+    assertThat(matcher.matches("http://example.com")).isTrue();
+    assertThat(matcher.matches("ftp")).isTrue();
+    assertThat(matcher.matches("htt")).isFalse();
+    assertThat(matcher.matches("sftp://example.com")).isFalse();
+    assertThat(matcher.matches("")).isFalse();
+  }
+
+  @Test
+  void itMatchesSuffixes() {
+    MultiPatternMatcher matcher = MultiPatternMatcher.suffixes(
+      List.of("@prefab.cloud", "@example.com")
+    );
+    assertThat(matcher.matches("jeff@prefab.cloud")).isTrue();
+    assertThat(matcher.matches("@example.com")).isTrue();
+    assertThat(matcher.matches("jeff@prefab.cloud.evil")).isFalse();
+    assertThat(matcher.matches("example.com")).isFalse();
+  }
+
+  @Test
+  void itMatchesSubstrings() {
+    MultiPatternMatcher matcher = MultiPatternMatcher.substrings(
+      List.of("he", "she", "his", "hers")
+    );
+    assertThat(matcher.matches("ushers")).isTrue();
+    assertThat(matcher.matches("ahishe")).isTrue();
+    assertThat(matcher.matches("hxsxhi")).isFalse();
+    assertThat(matcher.matches("")).isFalse();
+  }
+
+  @Test
+  void itFollowsFailureLinksToShorterPatterns() {
+    MultiPatternMatcher matcher = MultiPatternMatcher.substrings(
+      List.of("abcd", "bc")
+    );
+    assertThat(matcher.matches("xabcx")).isTrue();
+    assertThat(matcher.matches("abd")).isFalse();
+  }
+
+  @Test
+  void emptyPatternMatchesEverythingLikeString() {
+    assertThat(MultiPatternMatcher.prefixes(List.of("")).matches("anything")).isTrue();
+    assertThat(MultiPatternMatcher.suffixes(List.of("")).matches("")).isTrue();
+    assertThat(MultiPatternMatcher.substrings(List.of("", "x")).matches("abc"))
+      .isTrue();
+  }
+
+  @Test
+  void noPatternsMatchNothing() {
+    assertThat(MultiPatternMatcher.prefixes(List.of()).matches("abc")).isFalse();
+    assertThat(MultiPatternMatcher.suffixes(List.of()).matches("abc")).isFalse();
+    assertThat(MultiPatternMatcher.substrings(List.of()).matches("abc")).isFalse();
+  }
+}
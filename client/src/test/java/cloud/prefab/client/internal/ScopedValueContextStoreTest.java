@@ -0,0 +1,97 @@
+package cloud.prefab.client.internal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import cloud.prefab.context.PrefabContext;
+import cloud.prefab.context.PrefabContextHelper;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Runs against whichever copy of the store is on the classpath. The java25 profile runs
+ * it again against the multi-release jar with prefab.test.scopedValues set, where the
+ * ScopedValue copy is required.
+ */
+class ScopedValueContextStoreTest {
+
+  private final ScopedValueContextStore contextStore = ScopedValueContextStore.INSTANCE;
+  private final PrefabContext user = PrefabContext
+    .newBuilder("user")
+    .put("key", "u1")
+    .build();
+  private final PrefabContext team = PrefabContext
+    .newBuilder("team")
+    .put("key", "t1")
+    .build();
+
+  // the ScopedValue copy is only available inside a binding, the fallback always is
+  private boolean usesScopedValues() {
+    return !contextStore.isAvailable();
+  }
+
+  @Test
+  void itUsesScopedValuesWhenRunFromTheMultiReleaseJar() {
+    if (Boolean.getBoolean("prefab.test.scopedValues")) {
+      assertThat(usesScopedValues()).isTrue();
+    }
+  }
+
+  @Test
+  void itBindsTheContextForTheDurationOfTheWork() throws Exception {
+    PrefabContextHelper helper = new PrefabContextHelper(contextStore);
+
+    String result = helper.performWorkWithContext(
+      user,
+      () -> {
+        assertThat(contextStore.getContext().get().getByName("user")).contains(user);
+        helper.performWorkWithContext(
+          team,
+          () -> {
+            assertThat(contextStore.getContext().get().getContexts())
+              .containsExactly(team);
+          }
+        );
+        assertThat(contextStore.getContext().get().getContexts()).containsExactly(user);
+        return "done";
+      }
+    );
+
+    assertThat(result).isEqualTo("done");
+    assertThat(contextStore.getContext().map(context -> context.isEmpty()).orElse(true))
+      .isTrue();
+  }
+
+  @Test
+  void itIgnoresChangesOutsideABinding() {
+    assumeTrue(usesScopedValues());
+
+    contextStore.addContext(user);
+
+    assertThat(contextStore.setContext(team)).isEmpty();
+    assertThat(contextStore.getContext()).isEmpty();
+    assertThat(contextStore.getStoredContext()).isSameAs(StoredContext.EMPTY);
+  }
+
+  @Test
+  void itReplacesTheStoredContextWithinABinding() {
+    assumeTrue(usesScopedValues());
+
+    contextStore.runWithContext(
+      user,
+      () -> {
+        assertThat(contextStore.isAvailable()).isTrue();
+        StoredContext bound = contextStore.getStoredContext();
+        assertThat(contextStore.getStoredContext()).isSameAs(bound);
+
+        contextStore.addContext(team);
+        assertThat(contextStore.getStoredContext()).isNotSameAs(bound);
+        assertThat(contextStore.getContext().get().getContexts()).hasSize(2);
+
+        assertThat(contextStore.clearContext())
+          .hasValueSatisfying(previous -> assertThat(previous.getContexts()).hasSize(2));
+        assertThat(contextStore.getStoredContext()).isSameAs(StoredContext.EMPTY);
+      }
+    );
+    assertThat(contextStore.isAvailable()).isFalse();
+  }
+}
@@ -0,0 +1,82 @@
+package cloud.prefab.client.internal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class TelemetryRingBufferTest {
+
+  @Test
+  void itRoundsTheCapacityUpToAPowerOfTwo() {
+    assertThat(new TelemetryRingBuffer<Integer>(1).capacity()).isEqualTo(1);
+    assertThat(new TelemetryRingBuffer<Integer>(5).capacity()).isEqualTo(8);
+    assertThat(new TelemetryRingBuffer<Integer>(8).capacity()).isEqualTo(8);
+  }
+
+  @Test
+  void itDropsNewEventsWhenFull() {
+    TelemetryRingBuffer<Integer> buffer = new TelemetryRingBuffer<>(4);
+    for (int i = 0; i < 4; i++) {
+      assertThat(buffer.offer(i)).isTrue();
+    }
+    assertThat(buffer.offer(4)).isFalse();
+
+    List<Integer> drained = new ArrayList<>();
+    assertThat(buffer.drain(drained::add, 10)).isEqualTo(4);
+    assertThat(drained).containsExactly(0, 1, 2, 3);
+    assertThat(buffer.offer(5)).isTrue();
+  }
+
+  @Test
+  void itDrainsInBatchesOldestFirst() {
+    TelemetryRingBuffer<Integer> buffer = new TelemetryRingBuffer<>(8);
+    List<Integer> drained = new ArrayList<>();
+    // wrap around the slots a few times
+    for (int lap = 0; lap < 3; lap++) {
+      for (int i = 0; i < 6; i++) {
+        buffer.offer(lap * 6 + i);
+      }
+      assertThat(buffer.drain(drained::add, 4)).isEqualTo(4);
+      assertThat(buffer.drain(drained::add, 4)).isEqualTo(2);
+      assertThat(buffer.drain(drained::add, 4)).isZero();
+    }
+    assertThat(drained).hasSize(18).isSorted();
+  }
+
+  @Test
+  void itDeliversEveryEventFromConcurrentProducersOnce() throws Exception {
+    int producers = 4;
+    int perProducer = 10_000;
+    TelemetryRingBuffer<Integer> buffer = new TelemetryRingBuffer<>(
+      producers * perProducer
+    );
+    ExecutorService executorService = Executors.newFixedThreadPool(producers);
+    CountDownLatch start = new CountDownLatch(1);
+    for (int p = 0; p < producers; p++) {
+      int first = p * perProducer;
+      executorService.submit(() -> {
+        start.await();
+        for (int i = 0; i < perProducer; i++) {
+          buffer.offer(first + i);
+        }
+        return null;
+      });
+    }
+
+    List<Integer> drained = new ArrayList<>();
+    start.countDown();
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    while (drained.size() < producers * perProducer && System.nanoTime() < deadline) {
+      buffer.drain(drained::add, 1_000);
+    }
+    executorService.shutdown();
+
+    assertThat(drained).hasSize(producers * perProducer).doesNotHaveDuplicates();
+  }
+}
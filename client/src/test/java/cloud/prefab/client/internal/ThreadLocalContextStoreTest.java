@@ -0,0 +1,49 @@
+package cloud.prefab.client.internal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import cloud.prefab.context.ContextStore;
+import cloud.prefab.context.PrefabContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class ThreadLocalContextStoreTest {
+
+  private final ContextStore contextStore = ThreadLocalContextStore.INSTANCE;
+
+  @AfterEach
+  void clear() {
+    contextStore.clearContext();
+  }
+
+  @Test
+  void storedContextIsReplacedWhenTheContextChanges() {
+    assertThat(ThreadLocalContextStore.INSTANCE.getStoredContext())
+      .isSameAs(StoredContext.EMPTY);
+
+    contextStore.setContext(PrefabContext.newBuilder("user").put("key", "u1").build());
+    StoredContext userContext = ThreadLocalContextStore.INSTANCE.getStoredContext();
+    assertThat(userContext).isNotSameAs(StoredContext.EMPTY);
+    assertThat(ThreadLocalContextStore.INSTANCE.getStoredContext()).isSameAs(userContext);
+
+    contextStore.addContext(PrefabContext.newBuilder("team").put("key", "t1").build());
+    assertThat(ThreadLocalContextStore.INSTANCE.getStoredContext())
+      .isNotSameAs(userContext);
+    assertThat(contextStore.getContext().get().getContexts()).hasSize(2);
+
+    contextStore.clearContext();
+    assertThat(ThreadLocalContextStore.INSTANCE.getStoredContext())
+      .isSameAs(StoredContext.EMPTY);
+  }
+
+  @Test
+  void previousContextIsReturnedWhenReplaced() {
+    PrefabContext user = PrefabContext.newBuilder("user").put("key", "u1").build();
+    contextStore.setContext(user);
+
+    assertThat(contextStore.setContext(PrefabContext.newBuilder("team").build()))
+      .hasValueSatisfying(previous ->
+        assertThat(previous.getByName("user")).contains(user)
+      );
+  }
+}
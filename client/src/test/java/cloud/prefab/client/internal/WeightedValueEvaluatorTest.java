@@ -8,6 +8,7 @@ import cloud.prefab.context.PrefabContext;
 import cloud.prefab.context.PrefabContextSetReadable;
 import cloud.prefab.domain.Prefab;
 import com.google.common.hash.HashCode;
+import java.util.List;
 import java.util.Optional;
 import java.util.stream.Stream;
 import org.junit.jupiter.api.Test;
@@ -72,7 +73,7 @@ class WeightedValueEvaluatorTest {
   @ParameterizedTest
   @MethodSource("provideArgumentsForHashingTrueFalse")
   void itUsesHashFunctionWhenAble(double hashValue, boolean expectedValue) {
-    when(hashProvider.hash("featureNamejames")).thenReturn(hashValue);
+    when(hashProvider.hash("featureName", "james")).thenReturn(hashValue);
     Prefab.WeightedValues weightedValues = getTrueFalseConfig(
       500,
       500,
@@ -91,7 +92,7 @@ class WeightedValueEvaluatorTest {
   @ParameterizedTest
   @MethodSource("provideArgumentsForHashingFourWaySplit")
   void itUsesHashFunctionWhenAbleFourWaySplit(double hashValue, int expectedValue) {
-    when(hashProvider.hash("featureNamejames")).thenReturn(hashValue);
+    when(hashProvider.hash("featureName", "james")).thenReturn(hashValue);
     Prefab.WeightedValues weightedValues = getMultiPartConfig(
       Optional.of("user.name"),
       10,
@@ -109,6 +110,39 @@ class WeightedValueEvaluatorTest {
       .isEqualTo(Prefab.ConfigValue.newBuilder().setInt(expectedValue).build());
   }
 
+  @Test
+  void streamingHashMatchesHashOfConcatenation() {
+    for (String value : List.of("james", "", "\u00e9mile", "\ud83d\ude00")) {
+      assertThat(HashProvider.DEFAULT.hash("featureName", value))
+        .isEqualTo(HashProvider.DEFAULT.hash("featureName" + value));
+    }
+    // a surrogate pair split between the two parts
+    assertThat(HashProvider.DEFAULT.hash("featureName\ud83d", "\ude00"))
+      .isEqualTo(HashProvider.DEFAULT.hash("featureName\ud83d\ude00"));
+  }
+
+  @Test
+  void distributionFindsTheFirstBucketAtOrAboveThePercentage() {
+    WeightedValueEvaluator.Distribution distribution = WeightedValueEvaluator.Distribution.of(
+      getMultiPartConfig(Optional.empty(), 1, 0, 3, 6)
+    );
+    assertThat(distribution.indexOf(0)).isEqualTo(0);
+    assertThat(distribution.indexOf(0.1)).isEqualTo(0);
+    assertThat(distribution.indexOf(0.10001)).isEqualTo(2);
+    assertThat(distribution.indexOf(0.4)).isEqualTo(2);
+    assertThat(distribution.indexOf(0.7)).isEqualTo(3);
+    assertThat(distribution.indexOf(1)).isEqualTo(3);
+  }
+
+  @Test
+  void distributionScansLinearlyWhenWeightsAreNegative() {
+    WeightedValueEvaluator.Distribution distribution = WeightedValueEvaluator.Distribution.of(
+      getMultiPartConfig(Optional.empty(), 5, -5, 10)
+    );
+    assertThat(distribution.indexOf(0.2)).isEqualTo(0);
+    assertThat(distribution.indexOf(0.7)).isEqualTo(2);
+  }
+
   private static Prefab.WeightedValues getTrueFalseConfig(
     int trueWeight,
     int falseWeight,
@@ -0,0 +1,114 @@
+package cloud.prefab.context;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import cloud.prefab.client.internal.ThreadLocalContextStore;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class CompositeContextStoreTest {
+
+  private final PrefabContext user = PrefabContext
+    .newBuilder("user")
+    .put("key", "u1")
+    .build();
+
+  @Test
+  void itUsesTheFirstAvailableStore() {
+    FakeStore unavailable = new FakeStore(false);
+    FakeStore first = new FakeStore(true);
+    FakeStore second = new FakeStore(true);
+    CompositeContextStore composite = new CompositeContextStore(
+      unavailable,
+      first,
+      second
+    );
+
+    composite.setContext(user);
+
+    assertThat(first.getContext()).isPresent();
+    assertThat(unavailable.getContext()).isEmpty();
+    assertThat(second.getContext()).isEmpty();
+    assertThat(composite.forCurrentScope()).containsSame(first);
+  }
+
+  @Test
+  void itQuietlyDoesNothingWithoutAnAvailableStore() {
+    CompositeContextStore composite = new CompositeContextStore(new FakeStore(false));
+
+    composite.addContext(user);
+
+    assertThat(composite.getContext()).isEmpty();
+    assertThat(composite.isAvailable()).isFalse();
+  }
+
+  @Test
+  void itFlattensNestedCompositesAndChecksEachStoreOncePerCall() {
+    FakeStore unavailable = new FakeStore(false);
+    FakeStore available = new FakeStore(true);
+    CompositeContextStore composite = new CompositeContextStore(
+      new CompositeContextStore(unavailable),
+      new CompositeContextStore(available)
+    );
+
+    composite.setContext(user);
+    composite.getContext();
+
+    assertThat(available.getContext()).isPresent();
+    assertThat(unavailable.availabilityChecks.get()).isEqualTo(2);
+    assertThat(available.availabilityChecks.get()).isEqualTo(2);
+  }
+
+  @Test
+  void itHandsBackTheScopeTheChildKeeps() {
+    CompositeContextStore composite = new CompositeContextStore(
+      new FakeStore(false),
+      ThreadLocalContextStore.INSTANCE
+    );
+
+    assertThat(composite.forCurrentScope()).containsSame(ThreadLocalContextStore.INSTANCE);
+    assertThat(composite.forCurrentScope()).isSameAs(composite.forCurrentScope());
+  }
+
+  private static class FakeStore implements ContextStore {
+
+    private final boolean available;
+    private final AtomicInteger availabilityChecks = new AtomicInteger();
+    private PrefabContextSetReadable contextSet;
+
+    FakeStore(boolean available) {
+      this.available = available;
+    }
+
+    @Override
+    public void addContext(PrefabContext prefabContext) {
+      contextSet = prefabContext;
+    }
+
+    @Override
+    public Optional<PrefabContextSetReadable> setContext(
+      PrefabContextSetReadable prefabContextSetReadable
+    ) {
+      Optional<PrefabContextSetReadable> previous = Optional.ofNullable(contextSet);
+      contextSet = prefabContextSetReadable;
+      return previous;
+    }
+
+    @Override
+    public Optional<PrefabContextSetReadable> clearContext() {
+      return setContext(null);
+    }
+
+    @Override
+    public Optional<PrefabContextSetReadable> getContext() {
+      return Optional.ofNullable(contextSet);
+    }
+
+    @Override
+    public boolean isAvailable() {
+      availabilityChecks.incrementAndGet();
+      return available;
+    }
+  }
+}
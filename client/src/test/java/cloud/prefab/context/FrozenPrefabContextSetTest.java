@@ -0,0 +1,66 @@
+package cloud.prefab.context;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+class FrozenPrefabContextSetTest {
+
+  private static final PrefabContext USER_1 = PrefabContext
+    .newBuilder("User")
+    .put("key", "u1")
+    .build();
+  private static final PrefabContext USER_2 = PrefabContext
+    .newBuilder("user")
+    .put("key", "u2")
+    .build();
+  private static final PrefabContext COMPANY = PrefabContext
+    .newBuilder("Company")
+    .put("key", "c1")
+    .build();
+  private static final PrefabContext TEAM = PrefabContext
+    .newBuilder("team")
+    .put("key", "t1")
+    .build();
+
+  @Test
+  void itMatchesTheMutableSet() {
+    PrefabContextSet mutable = PrefabContextSet.from(USER_1, COMPANY, USER_2);
+    FrozenPrefabContextSet frozen = mutable.freeze();
+
+    assertThat(frozen.getContexts()).containsExactlyElementsOf(mutable.getContexts());
+    assertThat(frozen.getByName("USER")).contains(USER_2);
+    assertThat(frozen.getByName("company")).contains(COMPANY);
+    assertThat(frozen.getByName("team")).isEmpty();
+    assertThat(frozen.toProto()).isEqualTo(mutable.toProto());
+  }
+
+  @Test
+  void itIsNotAffectedByChangesToTheSetItWasBuiltFrom() {
+    PrefabContextSet mutable = PrefabContextSet.from(USER_1);
+    FrozenPrefabContextSet frozen = mutable.freeze();
+    mutable.addContext(COMPANY);
+
+    assertThat(frozen.getContexts()).containsExactly(USER_1);
+  }
+
+  @Test
+  void withReturnsACopyInNameOrder() {
+    FrozenPrefabContextSet frozen = FrozenPrefabContextSet.of(USER_1);
+    FrozenPrefabContextSet added = frozen.with(TEAM).with(COMPANY).with(USER_2);
+
+    assertThat(frozen.getContexts()).containsExactly(USER_1);
+    assertThat(added.getContexts()).containsExactly(COMPANY, TEAM, USER_2);
+    assertThat(added).isEqualTo(PrefabContextSet.from(USER_2, TEAM, COMPANY).freeze());
+    assertThat(added.with(null)).isSameAs(added);
+  }
+
+  @Test
+  void ofReturnsFrozenSetsAsIs() {
+    FrozenPrefabContextSet frozen = FrozenPrefabContextSet.of(USER_1);
+    assertThat(FrozenPrefabContextSet.of((PrefabContextSetReadable) frozen))
+      .isSameAs(frozen);
+    assertThat(FrozenPrefabContextSet.of(PrefabContextSetReadable.EMPTY))
+      .isSameAs(FrozenPrefabContextSet.EMPTY);
+  }
+}
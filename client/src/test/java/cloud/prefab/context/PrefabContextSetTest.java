@@ -139,4 +139,50 @@ class PrefabContextSetTest {
     )
       .isEqualTo("team--string: \"t123\"user--string: \"u123\"");
   }
+
+  @Test
+  void fingerPrintHashCoversOnlyNamedKeys() {
+    FrozenPrefabContextSet userAndTeam = PrefabContextSet
+      .from(
+        PrefabContext.newBuilder("user").put("key", "u123").put("plan", "pro").build(),
+        PrefabContext.newBuilder("team").put("key", "t123").build()
+      )
+      .freeze();
+    FrozenPrefabContextSet sameKeys = PrefabContextSet
+      .from(
+        PrefabContext.newBuilder("team").put("key", "t123").build(),
+        PrefabContext.newBuilder("user").put("key", "u123").put("plan", "free").build()
+      )
+      .freeze();
+
+    assertThat(userAndTeam.getFingerPrintHash())
+      .isEqualTo(sameKeys.getFingerPrintHash())
+      .isEqualTo(userAndTeam.getFingerPrintHash())
+      .isNotEqualTo(PrefabContextSetReadable.NO_FINGERPRINT);
+    assertThat(
+      PrefabContextSet
+        .from(PrefabContext.newBuilder("user").put("key", "u124").build())
+        .getFingerPrintHash()
+    )
+      .isNotEqualTo(userAndTeam.getFingerPrintHash());
+  }
+
+  @Test
+  void fingerPrintHashDistinguishesKeyTypes() {
+    PrefabContext stringKey = PrefabContext.newBuilder("user").put("key", "1").build();
+    PrefabContext intKey = PrefabContext.newBuilder("user").put("key", 1).build();
+
+    assertThat(stringKey.getFingerPrintHash()).isNotEqualTo(intKey.getFingerPrintHash());
+  }
+
+  @Test
+  void fingerPrintHashIsAbsentForKeyLess() {
+    assertThat(
+      PrefabContextSet
+        .from(PREFAB_USER_CONTEXT_2, PREFAB_COMPANY_CONTEXT)
+        .freeze()
+        .getFingerPrintHash()
+    )
+      .isEqualTo(PrefabContextSetReadable.NO_FINGERPRINT);
+  }
 }
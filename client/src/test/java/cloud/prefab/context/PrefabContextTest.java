@@ -2,7 +2,9 @@ package cloud.prefab.context;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import cloud.prefab.client.config.ConfigValueUtils;
 import cloud.prefab.domain.Prefab;
+import java.util.List;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
 
@@ -95,4 +97,71 @@ class PrefabContextTest {
         )
       );
   }
+
+  @Test
+  void itBuildsTheSameContextFromRawAndConfigValues() {
+    PrefabContext raw = PrefabContext
+      .newBuilder("User")
+      .put("key", "user1234")
+      .put("age", 56)
+      .put("pi", 3.14)
+      .put("isCustomer", true)
+      .put("tags", List.of("a", "b"))
+      .build();
+    PrefabContext converted = PrefabContext.fromMap(
+      "User",
+      Map.of(
+        "key",
+        ConfigValueUtils.from("user1234"),
+        "age",
+        ConfigValueUtils.from(56),
+        "pi",
+        ConfigValueUtils.from(3.14),
+        "isCustomer",
+        ConfigValueUtils.from(true),
+        "tags",
+        ConfigValueUtils.from(List.of("a", "b"))
+      )
+    );
+
+    // the shape comes from the raw values, before anything has been converted
+    assertThat(raw.getShape()).isEqualTo(converted.getShape());
+    assertThat(raw.getShapeSignature()).isEqualTo(converted.getShapeSignature());
+    assertThat(raw.getQualifiedProperties().get("User.tags"))
+      .isEqualTo(ConfigValueUtils.from(List.of("a", "b")));
+    assertThat(raw.getProperties().get("missing")).isNull();
+    assertThat(raw).isEqualTo(converted);
+    assertThat(raw.hashCode()).isEqualTo(converted.hashCode());
+  }
+
+  @Test
+  void itHasTheSameShapeSignatureForTheSameShape() {
+    PrefabContext gold = PrefabContext
+      .newBuilder("user")
+      .put("tier", "gold")
+      .put("age", 44)
+      .build();
+    PrefabContext silver = PrefabContext
+      .newBuilder("user")
+      .put("age", 100)
+      .put("tier", "silver")
+      .build();
+    PrefabContext stringAge = PrefabContext
+      .newBuilder("user")
+      .put("tier", "gold")
+      .put("age", "44")
+      .build();
+    PrefabContext team = PrefabContext
+      .newBuilder("team")
+      .put("tier", "gold")
+      .put("age", 44)
+      .build();
+    PrefabContext tierOnly = PrefabContext.newBuilder("user").put("tier", "gold").build();
+
+    assertThat(gold.getShapeSignature()).isEqualTo(silver.getShapeSignature());
+    assertThat(gold.getShapeSignature())
+      .isNotEqualTo(stringAge.getShapeSignature())
+      .isNotEqualTo(team.getShapeSignature())
+      .isNotEqualTo(tierOnly.getShapeSignature());
+  }
 }
@@ -0,0 +1,42 @@
+package cloud.prefab.client.micronaut;
+
+import cloud.prefab.context.FrozenPrefabContextSet;
+import io.micronaut.http.HttpRequest;
+import io.micronaut.http.MutableHttpResponse;
+import io.micronaut.http.filter.HttpServerFilter;
+import io.micronaut.http.filter.ServerFilterChain;
+import org.reactivestreams.Publisher;
+
+/**
+ * Resolves the Prefab context once per request, using a RequestContextResolver, and stores it
+ * for the ServerRequestContextStore before the request is handled. Micronaut only routes to
+ * filters annotated with @Filter, so register it with a subclass, e.g.
+ * <pre>
+ * &#64;Filter("/**")
+ * public class AppPrefabContextFilter extends PrefabContextFilter {
+ *   public AppPrefabContextFilter() {
+ *     super(RequestContextResolver.newBuilder().header("X-User-Id", "user", "key").build());
+ *   }
+ * }
+ * </pre>
+ */
+public class PrefabContextFilter implements HttpServerFilter {
+
+  private final RequestContextResolver requestContextResolver;
+
+  public PrefabContextFilter(RequestContextResolver requestContextResolver) {
+    this.requestContextResolver = requestContextResolver;
+  }
+
+  @Override
+  public Publisher<MutableHttpResponse<?>> doFilter(
+    HttpRequest<?> request,
+    ServerFilterChain chain
+  ) {
+    FrozenPrefabContextSet contextSet = requestContextResolver.resolve(request);
+    if (!contextSet.isEmpty()) {
+      ServerRequestContextStore.store(request, contextSet);
+    }
+    return chain.proceed(request);
+  }
+}
@@ -0,0 +1,117 @@
+package cloud.prefab.client.micronaut;
+
+import cloud.prefab.context.FrozenPrefabContextSet;
+import cloud.prefab.context.PrefabContext;
+import io.micronaut.http.HttpRequest;
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Builds the Prefab context for a request from its headers and user principal, e.g.
+ * <pre>
+ * RequestContextResolver.newBuilder()
+ *   .header("X-User-Id", "user", "key")
+ *   .header("X-Tenant", "team", "key")
+ *   .principalName("user", "email")
+ *   .build();
+ * </pre>
+ * Headers that are missing are skipped, as are contexts left without properties.
+ */
+public class RequestContextResolver {
+
+  private final List<PropertySource> propertySources;
+
+  private RequestContextResolver(List<PropertySource> propertySources) {
+    this.propertySources = List.copyOf(propertySources);
+  }
+
+  public FrozenPrefabContextSet resolve(HttpRequest<?> request) {
+    Map<String, PrefabContext.Builder> builders = new LinkedHashMap<>();
+    for (PropertySource propertySource : propertySources) {
+      propertySource
+        .read(request)
+        .ifPresent(value ->
+          builders
+            .computeIfAbsent(propertySource.contextName, PrefabContext::newBuilder)
+            .put(propertySource.propertyName, value)
+        );
+    }
+    if (builders.isEmpty()) {
+      return FrozenPrefabContextSet.EMPTY;
+    }
+    List<PrefabContext> contexts = new ArrayList<>(builders.size());
+    for (PrefabContext.Builder builder : builders.values()) {
+      contexts.add(builder.build());
+    }
+    return FrozenPrefabContextSet.of(contexts);
+  }
+
+  public static Builder newBuilder() {
+    return new Builder();
+  }
+
+  public static class Builder {
+
+    private final List<PropertySource> propertySources = new ArrayList<>();
+
+    private Builder() {}
+
+    /**
+     * Sets contextName.propertyName to the value of the given header when it is present
+     */
+    public Builder header(String headerName, String contextName, String propertyName) {
+      propertySources.add(
+        new PropertySource(
+          contextName,
+          propertyName,
+          request -> Optional.ofNullable(request.getHeaders().get(headerName))
+        )
+      );
+      return this;
+    }
+
+    /**
+     * Sets contextName.propertyName to the name of the request's user principal when it has one
+     */
+    public Builder principalName(String contextName, String propertyName) {
+      propertySources.add(
+        new PropertySource(
+          contextName,
+          propertyName,
+          request -> request.getUserPrincipal().map(Principal::getName)
+        )
+      );
+      return this;
+    }
+
+    public RequestContextResolver build() {
+      return new RequestContextResolver(propertySources);
+    }
+  }
+
+  private static class PropertySource {
+
+    private final String contextName;
+    private final String propertyName;
+    private final Function<HttpRequest<?>, Optional<String>> reader;
+
+    PropertySource(
+      String contextName,
+      String propertyName,
+      Function<HttpRequest<?>, Optional<String>> reader
+    ) {
+      this.contextName = contextName;
+      this.propertyName = propertyName;
+      this.reader = reader;
+    }
+
+    Optional<String> read(HttpRequest<?> request) {
+      return reader.apply(request);
+    }
+  }
+}
@@ -1,9 +1,12 @@
 package cloud.prefab.client.micronaut;
 
+import cloud.prefab.client.internal.StoredContext;
+import cloud.prefab.client.internal.StoredContextSource;
 import cloud.prefab.context.ContextStore;
+import cloud.prefab.context.FrozenPrefabContextSet;
 import cloud.prefab.context.PrefabContext;
-import cloud.prefab.context.PrefabContextSet;
 import cloud.prefab.context.PrefabContextSetReadable;
+import io.micronaut.http.HttpRequest;
 import io.micronaut.http.context.ServerRequestContext;
 import java.util.Optional;
 
@@ -12,62 +15,144 @@ import java.util.Optional;
  * micronaut is an event-based server, so a request can be handled by many threads.
  * Instead of using a ThreadLocal, we stash the context into the attributes of the current
  * HttpRequest via ServerRequestContext.currentRequest()
+ * The attribute is a RequestContextStore, bound to the request once and handed out by
+ * forCurrentScope, so calls made through it read the context without looking the request
+ * or the attribute up again. It holds a StoredContext that is replaced rather than
+ * modified, so the client reuses the lookup context it resolved for the request until the
+ * context changes, on whichever thread the request is handled. PrefabContextFilter fills
+ * it in once per request.
  */
-public class ServerRequestContextStore implements ContextStore {
+public class ServerRequestContextStore implements ContextStore, StoredContextSource {
 
   public static final String ATTRIBUTE_NAME = "prefab-contexts";
 
   @Override
   public void addContext(PrefabContext prefabContext) {
-    getPrefabContextSet()
-      .ifPresentOrElse(
-        prefabContextSet -> prefabContextSet.addContext(prefabContext),
-        () -> setContext(prefabContext)
-      );
+    Optional<HttpRequest<Object>> request = ServerRequestContext.currentRequest();
+    if (request.isPresent()) {
+      requestStore(request.get()).addContext(prefabContext);
+    }
   }
 
   @Override
   public Optional<PrefabContextSetReadable> setContext(
     PrefabContextSetReadable prefabContextSetReadable
   ) {
-    return ServerRequestContext
-      .currentRequest()
-      .map(req -> {
-        Optional<PrefabContextSetReadable> currentContext = getContext();
-        req.setAttribute(
-          ATTRIBUTE_NAME,
-          PrefabContextSet.convert(prefabContextSetReadable)
-        );
-        return currentContext;
-      })
-      .orElse(Optional.empty());
+    Optional<HttpRequest<Object>> request = ServerRequestContext.currentRequest();
+    if (!request.isPresent()) {
+      return Optional.empty();
+    }
+    return requestStore(request.get()).setContext(prefabContextSetReadable);
   }
 
   @Override
   public Optional<PrefabContextSetReadable> clearContext() {
-    Optional<PrefabContextSetReadable> currentContext = getContext();
-    ServerRequestContext
-      .currentRequest()
-      .ifPresent(objectHttpRequest -> objectHttpRequest.setAttribute(ATTRIBUTE_NAME, null)
-      );
-    return currentContext;
+    Optional<HttpRequest<Object>> request = ServerRequestContext.currentRequest();
+    if (!request.isPresent()) {
+      return Optional.empty();
+    }
+    return requestStore(request.get()).clearContext();
   }
 
   @Override
   public Optional<PrefabContextSetReadable> getContext() {
-    return getPrefabContextSet().map(PrefabContextSetReadable::readOnlyContextSetView);
+    Optional<HttpRequest<Object>> request = ServerRequestContext.currentRequest();
+    if (!request.isPresent()) {
+      return Optional.empty();
+    }
+    return requestStore(request.get()).getContext();
   }
 
-  private Optional<PrefabContextSet> getPrefabContextSet() {
-    return ServerRequestContext
-      .currentRequest()
-      .flatMap(objectHttpRequest ->
-        objectHttpRequest.getAttribute(ATTRIBUTE_NAME, PrefabContextSet.class)
-      );
+  @Override
+  public StoredContext getStoredContext() {
+    Optional<HttpRequest<Object>> request = ServerRequestContext.currentRequest();
+    if (!request.isPresent()) {
+      return StoredContext.EMPTY;
+    }
+    return requestStore(request.get()).getStoredContext();
   }
 
   @Override
   public boolean isAvailable() {
     return ServerRequestContext.currentRequest().isPresent();
   }
+
+  @Override
+  public Optional<ContextStore> forCurrentScope() {
+    Optional<HttpRequest<Object>> request = ServerRequestContext.currentRequest();
+    if (!request.isPresent()) {
+      return Optional.empty();
+    }
+    return requestStore(request.get()).scope;
+  }
+
+  static void store(HttpRequest<?> request, FrozenPrefabContextSet contextSet) {
+    requestStore(request).storedContext = StoredContext.of(contextSet);
+  }
+
+  private static RequestContextStore requestStore(HttpRequest<?> request) {
+    Optional<RequestContextStore> requestStore = request.getAttribute(
+      ATTRIBUTE_NAME,
+      RequestContextStore.class
+    );
+    if (requestStore.isPresent()) {
+      return requestStore.get();
+    }
+    RequestContextStore created = new RequestContextStore();
+    request.setAttribute(ATTRIBUTE_NAME, created);
+    return created;
+  }
+
+  /**
+   * The store for one request: the request attribute, and what forCurrentScope returns
+   */
+  private static final class RequestContextStore
+    implements ContextStore, StoredContextSource {
+
+    private final Optional<ContextStore> scope = Optional.of(this);
+
+    // null until a context is set, so getContext stays empty until then
+    private volatile StoredContext storedContext;
+
+    @Override
+    public synchronized void addContext(PrefabContext prefabContext) {
+      storedContext = getStoredContext().with(prefabContext);
+    }
+
+    @Override
+    public synchronized Optional<PrefabContextSetReadable> setContext(
+      PrefabContextSetReadable prefabContextSetReadable
+    ) {
+      Optional<PrefabContextSetReadable> currentContext = getContext();
+      storedContext = StoredContext.of(prefabContextSetReadable);
+      return currentContext;
+    }
+
+    @Override
+    public synchronized Optional<PrefabContextSetReadable> clearContext() {
+      Optional<PrefabContextSetReadable> currentContext = getContext();
+      storedContext = null;
+      return currentContext;
+    }
+
+    @Override
+    public Optional<PrefabContextSetReadable> getContext() {
+      StoredContext current = storedContext;
+      if (current == null) {
+        return Optional.empty();
+      }
+      return Optional.of(current.getContextSet());
+    }
+
+    @Override
+    public StoredContext getStoredContext() {
+      StoredContext current = storedContext;
+      return current == null ? StoredContext.EMPTY : current;
+    }
+
+    @Override
+    public Optional<ContextStore> forCurrentScope() {
+      return scope;
+    }
+  }
 }
@@ -0,0 +1,75 @@
+package cloud.prefab.client.micronaut;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import cloud.prefab.context.FrozenPrefabContextSet;
+import cloud.prefab.context.PrefabContext;
+import io.micronaut.http.HttpAttributes;
+import io.micronaut.http.HttpMethod;
+import io.micronaut.http.MutableHttpRequest;
+import io.micronaut.http.context.ServerRequestContext;
+import io.micronaut.http.filter.ServerFilterChain;
+import io.micronaut.http.simple.SimpleHttpRequest;
+import java.security.Principal;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class PrefabContextFilterTest {
+
+  private final ServerRequestContextStore contextStore = new ServerRequestContextStore();
+  private final PrefabContextFilter filter = new PrefabContextFilter(
+    RequestContextResolver
+      .newBuilder()
+      .header("X-User-Id", "user", "key")
+      .header("X-Tenant", "team", "key")
+      .principalName("user", "email")
+      .build()
+  );
+  private final ServerFilterChain chain = request -> subscriber -> {};
+
+  @AfterEach
+  void afterEach() {
+    ServerRequestContext.set(null);
+  }
+
+  @Test
+  void itStoresTheContextResolvedFromTheRequest() {
+    MutableHttpRequest<String> request = request();
+    request.header("X-User-Id", "u1");
+    request.setAttribute(HttpAttributes.PRINCIPAL, (Principal) () -> "joe@example.com");
+
+    filter.doFilter(request, chain);
+
+    // there's no X-Tenant header so no team context
+    assertThat(contextStore.getContext())
+      .contains(
+        FrozenPrefabContextSet.of(
+          List.of(
+            PrefabContext
+              .newBuilder("user")
+              .put("key", "u1")
+              .put("email", "joe@example.com")
+              .build()
+          )
+        )
+      );
+  }
+
+  @Test
+  void itStoresNothingWhenTheRequestHasNoContext() {
+    filter.doFilter(request(), chain);
+
+    assertThat(contextStore.getContext()).isEmpty();
+  }
+
+  private static MutableHttpRequest<String> request() {
+    MutableHttpRequest<String> request = new SimpleHttpRequest<>(
+      HttpMethod.GET,
+      "http://localhost/",
+      null
+    );
+    ServerRequestContext.set(request);
+    return request;
+  }
+}
@@ -2,6 +2,10 @@ package cloud.prefab.client.micronaut;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import cloud.prefab.client.internal.StoredContext;
+import cloud.prefab.client.internal.StoredContextSource;
+import cloud.prefab.context.ContextStore;
+import cloud.prefab.context.FrozenPrefabContextSet;
 import cloud.prefab.context.PrefabContext;
 import cloud.prefab.context.PrefabContextSet;
 import io.micronaut.http.HttpMethod;
@@ -55,6 +59,11 @@ class ServerRequestContextStoreTest {
       assertThat(prefabStateStore.clearContext()).isEmpty();
       assertThat(prefabStateStore.getContext()).isEmpty();
     }
+
+    @Test
+    void storedContextIsEmpty() {
+      assertThat(prefabStateStore.getStoredContext()).isSameAs(StoredContext.EMPTY);
+    }
   }
 
   @Nested
@@ -81,10 +90,45 @@ class ServerRequestContextStoreTest {
     void addContextWhenEmptyUpdatesTheContext() {
       prefabStateStore.addContext(userContext);
       assertThat(prefabStateStore.getContext())
-        .isPresent()
-        .get()
-        .usingRecursiveComparison()
-        .isEqualTo(PrefabContextSet.convert(userContext));
+        .contains(FrozenPrefabContextSet.of(userContext));
+    }
+
+    @Test
+    void forCurrentScopeIsBoundToTheCurrentRequest() {
+      ContextStore scoped = prefabStateStore.forCurrentScope().orElseThrow();
+      ServerRequestContext.set(null);
+
+      scoped.setContext(userContext);
+
+      assertThat(prefabStateStore.getContext()).isEmpty();
+      assertThat(scoped.getContext())
+        .contains(FrozenPrefabContextSet.of(userContext));
+    }
+
+    @Test
+    void forCurrentScopeIsBoundOncePerRequest() {
+      ContextStore scoped = prefabStateStore.forCurrentScope().orElseThrow();
+      assertThat(prefabStateStore.forCurrentScope()).containsSame(scoped);
+
+      prefabStateStore.setContext(userContext);
+
+      assertThat(((StoredContextSource) scoped).getStoredContext())
+        .isSameAs(prefabStateStore.getStoredContext());
+    }
+
+    @Test
+    void storedContextIsReplacedWhenTheContextChanges() {
+      assertThat(prefabStateStore.getStoredContext()).isSameAs(StoredContext.EMPTY);
+      prefabStateStore.setContext(userContext);
+      StoredContext stored = prefabStateStore.getStoredContext();
+      assertThat(stored.getContextSet()).isEqualTo(FrozenPrefabContextSet.of(userContext));
+      assertThat(prefabStateStore.getStoredContext()).isSameAs(stored);
+
+      prefabStateStore.addContext(serverContext);
+      assertThat(prefabStateStore.getStoredContext()).isNotSameAs(stored);
+
+      prefabStateStore.clearContext();
+      assertThat(prefabStateStore.getStoredContext()).isSameAs(StoredContext.EMPTY);
     }
 
     @Test
@@ -113,44 +157,29 @@ class ServerRequestContextStoreTest {
       @Test
       void getReturnsExpectedSet() {
         assertThat(prefabStateStore.getContext())
-          .isPresent()
-          .get()
-          .usingRecursiveComparison()
-          .isEqualTo(userAndServerContextSet);
+          .contains(FrozenPrefabContextSet.of(userAndServerContextSet));
       }
 
       @Test
       void clearWorksAsExpected() {
         assertThat(prefabStateStore.clearContext())
-          .isPresent()
-          .get()
-          .usingRecursiveComparison()
-          .isEqualTo(userAndServerContextSet);
+          .contains(FrozenPrefabContextSet.of(userAndServerContextSet));
         assertThat(prefabStateStore.getContext()).isEmpty();
       }
 
       @Test
       void setWorksAsExpected() {
         assertThat(prefabStateStore.setContext(userContext))
-          .isPresent()
-          .get()
-          .usingRecursiveComparison()
-          .isEqualTo(userAndServerContextSet);
+          .contains(FrozenPrefabContextSet.of(userAndServerContextSet));
         assertThat(prefabStateStore.getContext())
-          .isPresent()
-          .get()
-          .usingRecursiveComparison()
-          .isEqualTo(userContext);
+          .contains(FrozenPrefabContextSet.of(userContext));
       }
 
       @Test
       void addWorksAsExpected() {
         prefabStateStore.addContext(newUserContext);
         assertThat(prefabStateStore.getContext())
-          .isPresent()
-          .get()
-          .usingRecursiveComparison()
-          .isEqualTo(newUserAndServerContextSet);
+          .contains(FrozenPrefabContextSet.of(newUserAndServerContextSet));
       }
     }
   }